@@ -19,23 +19,36 @@ package org.fuin.devsupwiz.base;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.fuin.devsupwiz.common.BootstrapBean;
+import org.fuin.devsupwiz.common.DevSupWizFxUtils;
+import org.fuin.devsupwiz.common.LatencyHistograms;
+import org.fuin.devsupwiz.common.Metrics;
+import org.fuin.devsupwiz.common.PrometheusTextFileWriter;
+import org.fuin.devsupwiz.common.ResourceCache;
+import org.fuin.devsupwiz.common.SystemFacts;
 import org.fuin.ext4logback.LogbackStandalone;
 import org.fuin.utils4j.Utils4J;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.qos.logback.classic.LoggerContext;
+
 import com.mashape.unirest.http.Unirest;
 
 import de.perdoctus.fx.Bundle;
 import de.perdoctus.fx.FxWeldApplication;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.application.Application.Parameters;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -47,6 +60,16 @@ import javafx.stage.Stage;
  */
 public class DevSetupWizard extends FxWeldApplication {
 
+    /**
+     * System property that enables printing {@link #FIRST_FRAME_MARKER} to
+     * standard out when the first frame was rendered.
+     */
+    public static final String FIRST_FRAME_MARKER_PROPERTY =
+            "devsupwiz.first-frame-marker";
+
+    /** Prefix of the line followed by the milliseconds since JVM start. */
+    public static final String FIRST_FRAME_MARKER = "devsupwiz-first-frame: ";
+
     private static final Logger LOG = LoggerFactory
             .getLogger(DevSetupWizard.class);
 
@@ -59,6 +82,10 @@ public class DevSetupWizard extends FxWeldApplication {
     @Inject
     private BootstrapBean bootstrapBean;
 
+    private PrometheusTextFileWriter metricsWriter;
+
+    private MainController mainController;
+
     private void initLogbackXml(final File logbackXmlFile) {
         if (!logbackXmlFile.exists()) {
             try {
@@ -95,6 +122,16 @@ public class DevSetupWizard extends FxWeldApplication {
 
         LOG.info("Start application");
 
+        // Read machine information in the background
+        SystemFacts.getInstance().prefetch();
+
+        // Decode icons and load bundles in the background
+        ResourceCache.warmUp(DevSupWizFxUtils.ICON_PATHS,
+                Arrays.asList(RESOURCE_PATH + "/progress",
+                        RESOURCE_PATH + "/welcome",
+                        RESOURCE_PATH + "/summary"));
+
+
         // Catch all exceptions in UI thread
         Thread.currentThread()
                 .setUncaughtExceptionHandler((thread, throwable) -> {
@@ -106,21 +143,80 @@ public class DevSetupWizard extends FxWeldApplication {
         // Set bootstrap information
         bootstrapBean.setParameters(parameters);
 
+        // Export metrics
+        Metrics.registerMBean();
+        final String metricsFile = parameters.getNamed().get("metrics-textfile");
+        if (metricsFile != null) {
+            final String interval = parameters.getNamed().get("metrics-interval");
+            metricsWriter = new PrometheusTextFileWriter(new File(metricsFile),
+                    interval == null
+                            ? PrometheusTextFileWriter.DEFAULT_INTERVAL_SECONDS
+                            : Long.parseLong(interval));
+
+        }
+
         // Start UI
         final ResourceBundle resources = fxmlLoader.getResources();
         fxmlLoader.setLocation(
                 getClass().getResource("/" + RESOURCE_PATH + "/main.fxml"));
         final Parent parent = fxmlLoader.load();
+        mainController = fxmlLoader.getController();
         final Scene scene = new Scene(parent);
         stage.setScene(scene);
         stage.setTitle(resources.getString("title"));
         stage.show();
+        reportFirstFrame();
+
+    }
+
+    private void reportFirstFrame() {
+        // An animation timer is called at the start of a pulse, before the
+        // scene is rendered. The first frame is rendered at the end of the
+        // first pulse, so it is reported after the second pulse completed.
+        new AnimationTimer() {
+            private int pulses;
+
+            @Override
+            public void handle(final long now) {
+                pulses++;
+                if (pulses < 2) {
+                    return;
+                }
+                stop();
+                Platform.runLater(() -> firstFrame());
+            }
+        }.start();
+    }
 
+    private void firstFrame() {
+        final long millis = System.currentTimeMillis()
+                - ManagementFactory.getRuntimeMXBean().getStartTime();
+        LatencyHistograms
+                .get(LatencyHistograms.key(DevSetupWizard.class,
+                        "firstFrame"))
+                .record(TimeUnit.MILLISECONDS.toNanos(millis));
+        LOG.info("First frame {} ms after JVM start", millis);
+        if (Boolean.getBoolean(FIRST_FRAME_MARKER_PROPERTY)) {
+            System.out.println(FIRST_FRAME_MARKER + millis);
+            System.out.flush();
+        }
     }
 
     @Override
     public void stop() throws Exception {
+        if (mainController != null) {
+            mainController.close();
+        }
+        if (metricsWriter != null) {
+            metricsWriter.close();
+        }
+        final String latencies = LatencyHistograms.report();
+        if (!latencies.isEmpty()) {
+            LOG.info("Latencies:\n{}", latencies);
+        }
         Unirest.shutdown();
+        // Flushes the asynchronous appenders and removes the UI log store
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
     }
 
 }
@@ -20,28 +20,44 @@ package org.fuin.devsupwiz.base;
 import static org.fuin.devsupwiz.common.DevSupWizUtils.findAppender;
 import static org.fuin.devsupwiz.common.DevSupWizUtils.getString;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
-import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
-import javax.validation.groups.Default;
 
+import org.fuin.devsupwiz.base.TaskQueue.Status;
+import org.fuin.devsupwiz.common.DevSupWizFxUtils;
+import org.fuin.devsupwiz.common.ExecutionHistory;
+import org.fuin.devsupwiz.common.FxQueue;
+import org.fuin.devsupwiz.common.LogIndex;
+import org.fuin.devsupwiz.common.LogLine;
+import org.fuin.devsupwiz.common.LogLineStore;
+import org.fuin.devsupwiz.common.LogPartitions;
+import org.fuin.devsupwiz.common.LogView;
+import org.fuin.devsupwiz.common.LogViewAppender;
 import org.fuin.devsupwiz.common.Loggable;
+import org.fuin.devsupwiz.common.Progress;
 import org.fuin.devsupwiz.common.SetupTask;
-import org.fuin.devsupwiz.common.TextFlowAppender;
-import org.fuin.devsupwiz.common.UserInput;
+import org.fuin.devsupwiz.common.ValidationService;
+import org.fuin.devsupwiz.common.ViolationIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import javafx.application.Platform;
-import javafx.collections.ListChangeListener;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -49,14 +65,15 @@ import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextArea;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
-import javafx.scene.text.TextFlow;
+import javafx.stage.FileChooser;
 
 /**
  * Main application controller.
@@ -89,7 +106,19 @@ public class MainController implements Initializable {
     private Button next;
 
     @FXML
-    private ScrollPane logScrollPane;
+    private Label taskStatus;
+
+    @FXML
+    private CheckBox logAllTasks;
+
+    @FXML
+    private TextField logSearch;
+
+    @FXML
+    private Label logSearchStatus;
+
+    @FXML
+    private LogView logView;
 
     @Inject
     private TaskModel taskModel;
@@ -100,36 +129,61 @@ public class MainController implements Initializable {
     @Inject
     private Validator validator;
 
+    @Inject
+    private ValidationService validationService;
+
     private ResourceBundle bundle;
 
     private NodeControllerPair<ProgressController> progressNodeControllerPair;
 
-    private TextFlow logOutput;
+    private TaskQueue taskQueue;
+
+    /** The progress pane covers the page until required tasks finished. */
+    private boolean waiting;
+
+    private SetupTask running;
+
+    private long runningSince;
+
+    private Long runningEstimate;
+
+    private LogPartitions logPartitions;
 
     @Override
     public void initialize(final URL location, final ResourceBundle bundle) {
 
-        final TextFlowAppender<ILoggingEvent> appender = findAppender("UI");
+        final LogViewAppender<ILoggingEvent> appender = findAppender("UI");
         if (appender == null) {
             throw new IllegalStateException("Appender 'UI' not found!");
         }
-        logOutput = appender.getTextFlow();
-        logScrollPane.setContent(logOutput);
+        logPartitions = appender.getPartitions();
 
         this.bundle = bundle;
 
+        taskQueue = new TaskQueue(validator, new TaskQueue.Listener() {
+            @Override
+            public void statusChanged(final SetupTask task, final Status status,
+                    final Throwable failure) {
+                onStatusChanged(task, status, failure);
+            }
+
+            @Override
+            public void progress(final SetupTask task, final Progress progress) {
+                onProgress(task, progress);
+            }
+        });
+
         messagesTitle.setText(bundle.getString("messages.title.default"));
-        messagesTitle.setGraphic(new ImageView(new Image("/info-24x24.png")));
+        messagesTitle.setGraphic(DevSupWizFxUtils.createIconInfo24x24());
 
         taskPane.setCenter(taskModel.getNode());
 
-        // Always scroll to the last log line
-        logOutput.getChildren()
-                .addListener((ListChangeListener<Node>) ((change) -> {
-                    logOutput.layout();
-                    logScrollPane.layout();
-                    logScrollPane.setVvalue(1.0f);
-                }));
+        // Revalidate in the background when the user changes the input
+        taskPane.addEventFilter(KeyEvent.KEY_RELEASED,
+                (event) -> validateLater());
+        taskPane.addEventFilter(MouseEvent.MOUSE_RELEASED,
+                (event) -> validateLater());
+        taskPane.addEventFilter(ActionEvent.ACTION, (event) -> validateLater());
 
         updateUI();
 
@@ -137,20 +191,126 @@ public class MainController implements Initializable {
 
     }
 
+    @FXML
+    private void onLogAllTasks(final ActionEvent event) {
+        showLog();
+    }
+
+    @FXML
+    private void onLogExport(final ActionEvent event) {
+        final FileChooser chooser = new FileChooser();
+        chooser.setTitle(bundle.getString("log.export.title"));
+        chooser.setInitialFileName("dev-setup-wizard.log");
+        final File file = chooser.showSaveDialog(logView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        final LogLineStore store = logPartitions.getAll();
+        final Task<Void> task = new Task<Void>() {
+            protected Void call() throws Exception {
+                try (final Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(file),
+                                Charset.forName("utf-8")))) {
+                    store.export(writer);
+                }
+                return null;
+            }
+
+            @Override
+            protected void failed() {
+                LOG.error("Failed to export log to: " + file, getException());
+                showError(getString(bundle, "log.export.failed", file),
+                        message(getException()));
+            }
+        };
+        new Thread(task).start();
+    }
+
+    @FXML
+    private void onLogSearch(final ActionEvent event) {
+        logSearchStatus.setText("");
+        final String query = logSearch.getText();
+        if (query == null || query.trim().isEmpty()) {
+            logView.getSelectionModel().clearSelection();
+            return;
+        }
+        final LogIndex index = logAllTasks.isSelected()
+                ? logPartitions.getIndex()
+                : logPartitions.getIndex(taskModel.getTask().getTypeId());
+        // Lines before the first one in the view were already dropped
+        final int first = logView.getFirstLineId() - 1;
+        final LogLine selected = logView.getSelectionModel().getSelectedItem();
+        final int after = selected == null ? first
+                : Math.max(first, selected.getId());
+        int id = index.next(query, after);
+        if (id < 0 && after > first) {
+            // Wrap around
+            id = index.next(query, first);
+        }
+        if (id < 0 || !logView.selectLine(id)) {
+            logSearchStatus.setText(bundle.getString("log.search.not-found"));
+        }
+    }
+
+    private void validateLater() {
+        validateLater(true);
+    }
+
+    /**
+     * Validates the current page's input in the background, so the result is
+     * already available when the user leaves the page.
+     * 
+     * @param show
+     *            Show the result in the messages area or only keep it for
+     *            {@link #isValid()}.
+     */
+    private void validateLater(final boolean show) {
+        final SetupTask snapshot = taskModel.getController().snapshot();
+        if (snapshot == null) {
+            return;
+        }
+        final String typeId = taskModel.getTask().getTypeId();
+        validationService.validateLater(typeId, snapshot, (violations) -> {
+            if (!show || !typeId.equals(taskModel.getTask().getTypeId())) {
+                // Not requested or user switched to another task in the meantime
+                return;
+            }
+            if (violations.isEmpty()) {
+                clearMessages();
+            } else {
+                showErrors(bundle.getString("messages.title.error"),
+                        violations.getMessages());
+
+            }
+        });
+    }
+
+    private void showLog() {
+        if (logAllTasks.isSelected()) {
+            logView.setItems(logPartitions.getAll().getLines());
+        } else {
+            logView.setItems(logPartitions
+                    .getTask(taskModel.getTask().getTypeId()).getLines());
+        }
+    }
+
     @FXML
     private void onPrevious(final ActionEvent event) {
         clearMessages();
-        if (taskModel.getTask().alreadyExecuted()) {
+        if (isSubmitted() || taskQueue.isBlocked(taskModel.getTask())) {
             previous();
         } else {
             if (isValid()) {
                 taskModel.save();
-                executeTask(this::previous);
+                taskQueue.submit(taskModel.getTask());
+                previous();
             }
         }
     }
 
     private void previous() {
+        // The input of the page may change before the user returns
+        validationService.invalidate(taskModel.getTask().getTypeId());
         taskModel.previous();
         taskPane.setCenter(taskModel.getNode());
         updateUI();
@@ -164,17 +324,31 @@ public class MainController implements Initializable {
     @FXML
     private void onNext(final ActionEvent event) {
         clearMessages();
-        if (taskModel.getTask().alreadyExecuted()) {
+        if (isSubmitted() || taskQueue.isBlocked(taskModel.getTask())) {
             next();
         } else {
             if (isValid()) {
                 taskModel.save();
-                executeTask(this::next);
+                taskQueue.submit(taskModel.getTask());
+                next();
             }
         }
     }
 
+    /**
+     * Determines if the current page's task was already executed or is
+     * waiting for execution. Such a page is not submitted again. A page is
+     * not submitted either while the queue is blocked by another page's
+     * failed task, so the user can navigate to that page and correct it.
+     */
+    private boolean isSubmitted() {
+        final SetupTask task = taskModel.getTask();
+        return task.alreadyExecuted() || taskQueue.getStatus(task).isPending();
+    }
+
     private void next() {
+        // The input of the page may change before the user returns
+        validationService.invalidate(taskModel.getTask().getTypeId());
         taskModel.next();
         taskPane.setCenter(taskModel.getNode());
         updateUI();
@@ -186,86 +360,170 @@ public class MainController implements Initializable {
     }
 
     private void focus(final Node node) {
-        Platform.runLater(new Runnable() {
+        FxQueue.runLater(new Runnable() {
             public void run() {
                 node.requestFocus();
             }
         });
     }
 
-    private void assertValid(final SetupTask task) {
-        final Set<ConstraintViolation<Object>> violations = validator
-                .validate(task, Default.class, UserInput.class);
-        if (!violations.isEmpty()) {
-            final StringBuilder sb = new StringBuilder();
-            violations.forEach((v) -> {
-                if (sb.length() > 0) {
-                    sb.append(", ");
-                }
-                sb.append(v.getMessage());
-            });
-            final String className = task.getClass().getName();
-            throw new IllegalStateException("The instance of type '" + className
-                    + "' was invalid when running 'execute()': "
-                    + sb.toString());
+    private void onStatusChanged(final SetupTask task, final Status status,
+            final Throwable failure) {
+        if (status == Status.RUNNING) {
+            running = task;
+            runningSince = System.nanoTime();
+            runningEstimate = ExecutionHistory.getDefault()
+                    .estimateRemainingMillis(task);
+            if (waiting) {
+                startProgress();
+            }
+        } else if (task.equals(running)) {
+            running = null;
+        }
+        if (status == Status.SUCCEEDED || status == Status.FAILED) {
+            // Executing the task may have changed what is valid
+            validationService.invalidate(task.getTypeId());
+        }
+        if (status == Status.FAILED) {
+            showError(getString(bundle, "messages.task.failed",
+                    task.getTypeId()), message(failure));
+        }
+        if (status == Status.SUCCEEDED && task.equals(taskModel.getTask())) {
+            taskModel.getController().refreshStatus();
         }
+        updateStatus();
     }
 
-    private void executeTask(final Runnable onSuccess) {
-
-        if (progressNodeControllerPair == null) {
-            progressNodeControllerPair = NodeControllerPair.load("progress",
-                    loaderInstance, "/org/fuin/devsupwiz/base/progress.fxml",
-                    "org/fuin/devsupwiz/base/progress");
+    private void onProgress(final SetupTask task, final Progress progress) {
+        if (waiting && task.equals(running)) {
+            progressNodeControllerPair.getController().show(progress);
         }
+        if (task.equals(taskModel.getTask())) {
+            taskStatus.setText(bundle.getString("status.running") + " - "
+                    + progress);
+        }
+    }
 
-        final SetupTask setupTask = taskModel.getTask();
-        assertValid(setupTask);
-
-        final Node progressUI = progressNodeControllerPair.getParent();
-        stackPane.getChildren().add(progressUI);
+    /**
+     * Shows the status of the current page's task and covers the page with
+     * the progress pane as long as the page has to wait for other tasks.
+     */
+    private void updateStatus() {
+        final SetupTask task = taskModel.getTask();
+        final Status status = taskQueue.getStatus(task);
+        taskModel.getNode().setDisable(status.isPending());
+        if (status == Status.NEW) {
+            final int pending = taskQueue.getPendingCount();
+            if (taskQueue.isBlocked(task)) {
+                taskStatus.setText(getString(bundle, "status.blocked",
+                        taskQueue.getFailed()));
+            } else {
+                taskStatus.setText(pending == 0 ? ""
+                        : getString(bundle, "status.background", pending));
+            }
+        } else if (status == Status.QUEUED) {
+            taskStatus.setText(bundle.getString("status.queued"));
+        } else if (status == Status.RUNNING) {
+            taskStatus.setText(bundle.getString("status.running"));
+        } else if (status == Status.FAILED) {
+            taskStatus.setText(bundle.getString("status.failed"));
+        } else {
+            taskStatus.setText(bundle.getString("status.succeeded"));
+        }
 
-        final Task<Void> task = new Task<Void>() {
-            protected Void call() throws Exception {
-                if (setupTask.alreadyExecuted()) {
-                    LOG.info("Task already executed: {}", setupTask.getTypeId());
-                } else {
-                    setupTask.execute();
-                    setupTask.success();
-                    LOG.info("Task successfully executed: {}", setupTask.getTypeId());
-                }
-                return null;
+        final boolean wait = mustWait();
+        if (wait && !waiting) {
+            if (progressNodeControllerPair == null) {
+                progressNodeControllerPair = NodeControllerPair.load("progress",
+                        loaderInstance, "/org/fuin/devsupwiz/base/progress.fxml",
+                        "org/fuin/devsupwiz/base/progress");
             }
+            stackPane.getChildren().add(progressNodeControllerPair.getParent());
+            waiting = true;
+            startProgress();
+        } else if (!wait && waiting) {
+            progressNodeControllerPair.getController().stop();
+            stackPane.getChildren()
+                    .remove(progressNodeControllerPair.getParent());
+            waiting = false;
+            taskModel.getController().refreshStatus();
+        }
+        if (!wait && !taskModel.hasNext()) {
+            verifyAllExecuted();
+        }
+    }
 
-            @Override
-            protected void succeeded() {
-                LOG.info("Task '" + setupTask.getTypeId() + "' succeeded");
-                stackPane.getChildren().remove(progressUI);
-                onSuccess.run();
+    /**
+     * Disables the summary and lists the tasks that were not executed if the
+     * final barrier was passed without all tasks succeeding, for example
+     * because a task failed and the tasks after it were dropped.
+     */
+    private void verifyAllExecuted() {
+        final List<String> errors = new ArrayList<>();
+        for (final SetupTask task : taskModel.getPreviousTasks()) {
+            final Status status = taskQueue.getStatus(task);
+            if (status == Status.FAILED) {
+                errors.add(getString(bundle, "messages.task.failed",
+                        task.getTypeId()));
+            } else if (status != Status.SUCCEEDED && !task.alreadyExecuted()) {
+                errors.add(getString(bundle, "messages.task.not-executed",
+                        task.getTypeId()));
             }
+        }
+        taskModel.getNode().setDisable(!errors.isEmpty());
+        if (!errors.isEmpty()) {
+            showErrors(bundle.getString("messages.title.incomplete"), errors);
+        }
+    }
 
-            @Override
-            protected void cancelled() {
-                LOG.info("Task '" + setupTask.getTypeId() + "' cancelled");
-                stackPane.getChildren().remove(progressUI);
-                messages.setText(getString(bundle, "messages.task.cancelled",
-                        taskModel.getTask().getTypeId()));
+    /**
+     * Determines if the current page requires results of tasks that are still
+     * pending. The summary waits for all tasks (final barrier) and is only
+     * enabled if all of them succeeded (see {@link #verifyAllExecuted()}).
+     * Other pages wait for all tasks before them, unless their task only
+     * waits for its dependencies (see
+     * {@link SetupTask#waitsForPreviousTasks()}).
+     */
+    private boolean mustWait() {
+        if (!taskModel.hasNext()) {
+            return taskQueue.getPendingCount() > 0;
+        }
+        final SetupTask task = taskModel.getTask();
+        final Set<String> typeIds = new HashSet<>(task.getDependencies());
+        if (task.waitsForPreviousTasks()) {
+            for (final SetupTask previous : taskModel.getPreviousTasks()) {
+                typeIds.add(previous.getTypeId());
             }
+        }
+        return taskQueue.isPending(typeIds);
+    }
 
-            @Override
-            protected void failed() {
-                LOG.info("Task '" + setupTask.getTypeId() + "' failed",
-                        getException());
-                stackPane.getChildren().remove(progressUI);
-                showError(
-                        getString(bundle, "messages.task.failed",
-                                taskModel.getTask().getTypeId()),
-                        message(getException()));
+    private void startProgress() {
+        final ProgressController progressController =
+                progressNodeControllerPair.getController();
+        if (running == null) {
+            progressController.setTitle(bundle.getString("progress.waiting"));
+            progressController.start(null);
+            return;
+        }
+        progressController.setTitle(getString(bundle, "progress.running",
+                running.getTypeId()));
 
-            }
-        };
-        new Thread(task).start();
+        if (runningEstimate == null) {
+            progressController.start(null);
+        } else {
+            final long elapsedMillis = TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - runningSince);
+            progressController.start(runningEstimate - elapsedMillis);
+        }
+    }
 
+    /**
+     * Stops executing tasks when the wizard is closed. A running task is
+     * completed, queued tasks are dropped.
+     */
+    public void close() {
+        taskQueue.close();
     }
 
     private static String message(final Throwable t) {
@@ -280,17 +538,20 @@ public class MainController implements Initializable {
         next.setDisable(!taskModel.hasNext());
         posLabel.setText(taskModel.getPosText());
         taskModel.getController().refreshStatus();
+        showLog();
         if (taskModel.getTask().alreadyExecuted()) {
             messages.setText(getString(bundle, "messages.task.already-executed",
                     taskModel.getTask().getTypeId()));
+        } else {
+            validateLater(false);
         }
+        updateStatus();
     }
 
     private void clearMessages() {
         if (messages.getText().length() > 0) {
             messagesTitle.setText(bundle.getString("messages.title.default"));
-            messagesTitle
-                    .setGraphic(new ImageView(new Image("/info-24x24.png")));
+            messagesTitle.setGraphic(DevSupWizFxUtils.createIconInfo24x24());
             messages.clear();
         }
     }
@@ -301,7 +562,7 @@ public class MainController implements Initializable {
 
     private void showErrors(final String title, final List<String> errors) {
         messagesTitle.setText(title);
-        messagesTitle.setGraphic(new ImageView(new Image("/error-24x24.png")));
+        messagesTitle.setGraphic(DevSupWizFxUtils.createIconError24x24());
         final StringBuilder sb = new StringBuilder();
         for (final String error : errors) {
             sb.append(error + "\n");
@@ -314,8 +575,16 @@ public class MainController implements Initializable {
         // Clear previous errors
         clearMessages();
 
-        // Verify current screen
-        final List<String> errors = taskModel.validate();
+        // Verify current screen - Use the result of the background
+        // validation if it is up-to-date
+        final ViolationIndex violations = validationService
+                .getResult(taskModel.getTask().getTypeId());
+        final List<String> errors;
+        if (violations == null) {
+            errors = taskModel.validate();
+        } else {
+            errors = violations.getMessages();
+        }
         if (errors.isEmpty()) {
             return true;
         }
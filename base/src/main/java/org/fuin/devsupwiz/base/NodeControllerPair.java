@@ -24,6 +24,7 @@ import java.util.ResourceBundle;
 import javax.enterprise.inject.Instance;
 import javax.validation.constraints.NotNull;
 
+import org.fuin.devsupwiz.common.ResourceCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,8 +102,7 @@ public final class NodeControllerPair<T> {
         final FXMLLoader loader = loaderInstance.select(FXMLLoader.class).get();
         try {
             try {
-                final ResourceBundle bundle = ResourceBundle
-                        .getBundle(resource);
+                final ResourceBundle bundle = ResourceCache.getBundle(resource);
                 final URL url = NodeControllerPair.class.getResource(fxml);
                 if (url == null) {
                     throw new IllegalStateException("FXML not found: " + fxml);
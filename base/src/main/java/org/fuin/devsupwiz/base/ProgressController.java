@@ -17,23 +17,203 @@
  */
 package org.fuin.devsupwiz.base;
 
+import static org.fuin.devsupwiz.common.DevSupWizUtils.formatDuration;
+import static org.fuin.devsupwiz.common.DevSupWizUtils.getString;
+
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+import org.fuin.devsupwiz.common.Progress;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ProgressIndicator;
+import javafx.util.Duration;
 
 /**
- * Controller for the progress pane.
+ * Controller for the progress pane. Shows the progress reported by the task
+ * if there is any and extrapolates the remaining time from the rate of the
+ * current step. Otherwise the progress is derived from the estimated
+ * duration of the task or is indeterminate if the duration is unknown. If the
+ * task reported progress before, but stopped doing so, the time since the
+ * last update is shown.
  */
 public class ProgressController {
 
+    private static final Duration UPDATE_INTERVAL = Duration.millis(250);
+
+    /** Time without progress update after which the task is shown as stalled. */
+    private static final long STALLED_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @FXML
+    private ResourceBundle resources;
+
     @FXML
     private Label title;
 
     @FXML
-    private ProgressIndicator progress;
+    private ProgressBar progress;
+
+    @FXML
+    private Label eta;
+
+    @FXML
+    private Label detail;
+
+    private Timeline timeline;
+
+    private long start;
+
+    private Long estimatedMillis;
+
+    private Progress latest;
+
+    private long latestTime;
+
+    /** Start of the current phase of the task's progress. */
+    private long phaseStart;
+
+    /** Fraction reported at the start of the current phase. */
+    private double phaseFraction;
 
     public void setTitle(final String text) {
         title.setText(text);
     }
 
+    /**
+     * Starts showing the progress of a task. Must be called in the FX thread.
+     * 
+     * @param estimatedMillis
+     *            Estimated duration of the task or <code>null</code> if it is
+     *            unknown.
+     */
+    public void start(@Nullable final Long estimatedMillis) {
+        stop();
+        this.start = System.nanoTime();
+        this.estimatedMillis = estimatedMillis == null || estimatedMillis <= 0
+                ? null : estimatedMillis;
+        this.latest = null;
+        this.phaseStart = start;
+        this.phaseFraction = 0;
+        update();
+        timeline = new Timeline(
+                new KeyFrame(UPDATE_INTERVAL, (event) -> update()));
+        timeline.setCycleCount(Animation.INDEFINITE);
+        timeline.play();
+    }
+
+    /**
+     * Shows progress reported by the task. Must be called in the FX thread.
+     * 
+     * @param progress
+     *            Latest progress.
+     */
+    public void show(@NotNull final Progress progress) {
+        if (timeline == null) {
+            // Task already finished
+            return;
+        }
+        final long now = System.nanoTime();
+        if (newPhase(progress)) {
+            phaseStart = now;
+            phaseFraction = progress.isDeterminate() ? progress.getFraction() : 0;
+        }
+        latest = progress;
+        latestTime = now;
+        update();
+    }
+
+    /**
+     * Determines if the progress belongs to a new phase of the task. The
+     * fraction of a progress is relative to its step, so a new step or a
+     * fraction that went down starts measuring the rate anew.
+     */
+    private boolean newPhase(final Progress progress) {
+        if (latest == null) {
+            // The first phase started with the task
+            return false;
+        }
+        if (!Objects.equals(latest.getStep(), progress.getStep())) {
+            return true;
+        }
+        return latest.isDeterminate() && progress.isDeterminate()
+                && progress.getFraction() < latest.getFraction();
+    }
+
+    /**
+     * Stops updating the progress. Must be called in the FX thread.
+     */
+    public void stop() {
+        if (timeline != null) {
+            timeline.stop();
+            timeline = null;
+        }
+    }
+
+    private void update() {
+        final long elapsedMillis = TimeUnit.NANOSECONDS
+                .toMillis(System.nanoTime() - start);
+        if (latest != null && latest.isDeterminate()) {
+            final double fraction = latest.getFraction();
+            progress.setProgress(fraction);
+            final long phaseMillis = TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - phaseStart);
+            final double done = fraction - phaseFraction;
+            if (done > 0 && phaseMillis > 0) {
+                final long remaining =
+                        (long) (phaseMillis * (1 - fraction) / done);
+
+                eta.setText(getString(resources, "eta",
+                        formatDuration(remaining)));
+            } else {
+                eta.setText("");
+            }
+        } else if (estimatedMillis == null) {
+            progress.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            eta.setText("");
+        } else if (elapsedMillis < estimatedMillis) {
+            progress.setProgress((double) elapsedMillis / estimatedMillis);
+            eta.setText(getString(resources, "eta",
+                    formatDuration(estimatedMillis - elapsedMillis)));
+        } else {
+            // Don't pretend to know how long it will take any more
+            progress.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            eta.setText(getString(resources, "overdue",
+                    formatDuration(elapsedMillis - estimatedMillis)));
+
+        }
+        detail.setText(detail());
+    }
+
+    private String detail() {
+        if (latest == null) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder();
+        if (latest.getStep() != null) {
+            sb.append(latest.getStep());
+        }
+        final String throughput = latest.formatThroughput();
+        if (throughput != null) {
+            sb.append(sb.length() == 0 ? "" : " - ").append(throughput);
+        }
+        final long silentMillis = TimeUnit.NANOSECONDS
+                .toMillis(System.nanoTime() - latestTime);
+        if (silentMillis >= STALLED_MILLIS) {
+            sb.append(sb.length() == 0 ? "" : " - ")
+                    .append(getString(resources, "stalled",
+                            formatDuration(silentMillis)));
+
+        }
+        return sb.toString();
+    }
+
 }
@@ -23,11 +23,13 @@ import java.util.List;
 import org.fuin.devsupwiz.common.Loggable;
 import org.fuin.devsupwiz.common.SetupController;
 import org.fuin.devsupwiz.common.SetupTask;
+import org.fuin.devsupwiz.common.Timed;
 
 /**
  * UI controller for summary screen.
  */
 @Loggable
+@Timed
 public class SummaryController implements SetupController {
 
     private SummaryTask task;
@@ -63,4 +65,10 @@ public class SummaryController implements SetupController {
         // Do nothing
     }
 
+    @Override
+    public SetupTask snapshot() {
+        // No input
+        return new SummaryTask();
+    }
+
 }
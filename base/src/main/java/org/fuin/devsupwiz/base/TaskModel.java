@@ -28,6 +28,7 @@ import javax.inject.Inject;
 import org.fuin.devsupwiz.common.Config;
 import org.fuin.devsupwiz.common.SetupController;
 import org.fuin.devsupwiz.common.SetupTask;
+import org.fuin.devsupwiz.common.Timed;
 
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -170,15 +171,34 @@ public class TaskModel {
      * 
      * @return List of error messages or an empty list of the task is valid.
      */
+    @Timed
     public List<String> validate() {
         return current.getController().getValidationErrors();
     }
 
     /**
-     * Saves the current data.
+     * Saves the current data. Tasks that run in the background persist the
+     * configuration, so the data is changed while holding the configuration's
+     * lock (see {@link Config#persist()}).
      */
+    @Timed
     public void save() {
-        current.getController().save();
+        synchronized (config) {
+            current.getController().save();
+        }
+    }
+
+    /**
+     * Returns the tasks of all pages before the current one.
+     * 
+     * @return Tasks in the order of the pages.
+     */
+    public List<SetupTask> getPreviousTasks() {
+        final List<SetupTask> tasks = new ArrayList<>();
+        for (int i = 0; i < index; i++) {
+            tasks.add(nodeControllers.get(i).getController().getTask());
+        }
+        return tasks;
     }
 
 }
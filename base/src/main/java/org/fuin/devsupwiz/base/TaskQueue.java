@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.base;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import javax.validation.groups.Default;
+
+import org.fuin.devsupwiz.common.CommandRunners;
+import org.fuin.devsupwiz.common.DevSupWizUtils;
+import org.fuin.devsupwiz.common.FxProgressListener;
+import org.fuin.devsupwiz.common.FxQueue;
+import org.fuin.devsupwiz.common.Progress;
+import org.fuin.devsupwiz.common.ProgressReporter;
+import org.fuin.devsupwiz.common.SetupTask;
+import org.fuin.devsupwiz.common.TaskExecution;
+import org.fuin.devsupwiz.common.UserInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Executes setup tasks one after the other in a background thread, so the
+ * user can already enter the data of the next pages. Tasks run in the order
+ * they were submitted. If a task fails, the queue is blocked: All tasks
+ * submitted after it are dropped and no other task can be submitted until the
+ * failed task was submitted again, so a task never runs before the tasks
+ * defined before it. The worker thread is no daemon, so a task that is running
+ * when the wizard is closed is completed. Queued tasks are dropped by
+ * {@link #close()}. All methods must be called in the FX thread and the
+ * listener is called in the FX thread.
+ */
+public final class TaskQueue {
+
+    /**
+     * Execution status of a task.
+     */
+    public enum Status {
+
+        /** Task was not submitted (or dropped after a failure). */
+        NEW,
+
+        /** Task waits for execution. */
+        QUEUED,
+
+        /** Task is executing. */
+        RUNNING,
+
+        /** Task was executed successfully. */
+        SUCCEEDED,
+
+        /** Task failed. */
+        FAILED;
+
+        /**
+         * Determines if the task is still to be executed.
+         * 
+         * @return <code>true</code> if the task is queued or running.
+         */
+        public boolean isPending() {
+            return this == QUEUED || this == RUNNING;
+        }
+
+    }
+
+    /**
+     * Receives status changes and progress of the tasks.
+     */
+    public interface Listener {
+
+        /**
+         * The status of a task changed.
+         * 
+         * @param task
+         *            Task.
+         * @param status
+         *            New status.
+         * @param failure
+         *            Cause if the status is {@link Status#FAILED}.
+         */
+        public void statusChanged(@NotNull SetupTask task,
+                @NotNull Status status, @Nullable Throwable failure);
+
+        /**
+         * The running task reported progress.
+         * 
+         * @param task
+         *            Task.
+         * @param progress
+         *            Latest progress.
+         */
+        public void progress(@NotNull SetupTask task, @NotNull Progress progress);
+
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskQueue.class);
+
+    private final Validator validator;
+
+    private final Listener listener;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Status> status;
+
+    /**
+     * Type ID of the task that failed or <code>null</code>. Set and cleared by
+     * the worker thread, so tasks submitted before the failure became known in
+     * the FX thread are dropped as well.
+     */
+    private final AtomicReference<String> failed;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param validator
+     *            Validator used to verify tasks before execution.
+     * @param listener
+     *            Listener to inform.
+     */
+    public TaskQueue(@NotNull final Validator validator,
+            @NotNull final Listener listener) {
+        super();
+        this.validator = validator;
+        this.listener = listener;
+        this.status = new HashMap<>();
+        this.failed = new AtomicReference<>();
+        this.executor = Executors.newSingleThreadExecutor((runnable) -> {
+            // No daemon: Killing a task in the middle of a command may leave
+            // the system in an undefined state
+            return new Thread(runnable, "devsupwiz-task-queue");
+        });
+    }
+
+    /**
+     * Adds a task to the end of the queue. The task's data must have been
+     * saved and must not be changed until the task is no longer pending.
+     * 
+     * @param task
+     *            Task to execute.
+     */
+    public void submit(@NotNull final SetupTask task) {
+        if (getStatus(task).isPending()) {
+            throw new IllegalStateException(
+                    "Task is already queued: " + task.getTypeId());
+        }
+        if (isBlocked(task)) {
+            throw new IllegalStateException("Task '" + task.getTypeId()
+                    + "' cannot be submitted before failed task: "
+                    + getFailed());
+        }
+        setStatus(task, Status.QUEUED, null);
+        executor.execute(() -> run(task));
+    }
+
+    /**
+     * Returns the task that failed and blocks the queue.
+     * 
+     * @return Type ID of the task or <code>null</code> if the queue is not
+     *         blocked.
+     */
+    @Nullable
+    public String getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Determines if a task cannot be submitted, because another task failed
+     * and was not submitted again.
+     * 
+     * @param task
+     *            Task.
+     * 
+     * @return <code>true</code> if the task has to wait for the failed task.
+     */
+    public boolean isBlocked(@NotNull final SetupTask task) {
+        final String typeId = failed.get();
+        return typeId != null && !typeId.equals(task.getTypeId());
+    }
+
+    /**
+     * Drops all queued tasks and stops the worker thread after the running
+     * task finished.
+     */
+    public void close() {
+        closed = true;
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the status of a task.
+     * 
+     * @param task
+     *            Task.
+     * 
+     * @return Status.
+     */
+    public Status getStatus(@NotNull final SetupTask task) {
+        final Status current = status.get(task.getTypeId());
+        if (current == null) {
+            return Status.NEW;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the number of tasks that are queued or running.
+     * 
+     * @return Pending tasks.
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (final Status current : status.values()) {
+            if (current.isPending()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Determines if any of the given tasks is queued or running.
+     * 
+     * @param typeIds
+     *            Type IDs of the tasks.
+     * 
+     * @return <code>true</code> if at least one of the tasks is pending.
+     */
+    public boolean isPending(@NotNull final Set<String> typeIds) {
+        for (final String typeId : typeIds) {
+            final Status current = status.get(typeId);
+            if (current != null && current.isPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setStatus(final SetupTask task, final Status newStatus,
+            final Throwable failure) {
+        status.put(task.getTypeId(), newStatus);
+        listener.statusChanged(task, newStatus, failure);
+    }
+
+    private void run(final SetupTask task) {
+        if (closed) {
+            LOG.info("Task dropped because the wizard was closed: {}",
+                    task.getTypeId());
+            return;
+        }
+        final String blocking = failed.get();
+        if (blocking != null) {
+            if (!blocking.equals(task.getTypeId())) {
+                LOG.info("Task dropped because of failed task '{}': {}",
+                        blocking, task.getTypeId());
+                FxQueue.runLater(() -> setStatus(task, Status.NEW, null));
+                return;
+            }
+            // The failed task was submitted again
+            failed.set(null);
+        }
+        FxQueue.runLater(() -> setStatus(task, Status.RUNNING, null));
+        MDC.put(DevSupWizUtils.MDC_TASK_KEY, task.getTypeId());
+        ProgressReporter.set(new FxProgressListener(
+                (progress) -> listener.progress(task, progress)));
+        try {
+            assertValid(task);
+            TaskExecution.execute(task, CommandRunners.get());
+            FxQueue.runLater(() -> setStatus(task, Status.SUCCEEDED, null));
+        } catch (final Throwable ex) {
+            LOG.info("Task '" + task.getTypeId() + "' failed", ex);
+            failed.set(task.getTypeId());
+            FxQueue.runLater(() -> setStatus(task, Status.FAILED, ex));
+        } finally {
+            ProgressReporter.remove();
+            MDC.remove(DevSupWizUtils.MDC_TASK_KEY);
+        }
+    }
+
+    private void assertValid(final SetupTask task) {
+        final Set<ConstraintViolation<Object>> violations = validator
+                .validate(task, Default.class, UserInput.class);
+
+        if (!violations.isEmpty()) {
+            final StringBuilder sb = new StringBuilder();
+            violations.forEach((v) -> {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(v.getMessage());
+            });
+            final String className = task.getClass().getName();
+            throw new IllegalStateException("The instance of type '" + className
+                    + "' was invalid when running 'execute()': " + sb.toString());
+        }
+    }
+
+}
@@ -30,6 +30,7 @@ import org.fuin.devsupwiz.common.Config;
 import org.fuin.devsupwiz.common.Loggable;
 import org.fuin.devsupwiz.common.SetupController;
 import org.fuin.devsupwiz.common.SetupTask;
+import org.fuin.devsupwiz.common.Timed;
 
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -39,6 +40,7 @@ import javafx.scene.control.Label;
  * UI controller for welcome screen.
  */
 @Loggable
+@Timed
 public class WelcomeController implements Initializable, SetupController {
 
     @FXML
@@ -88,4 +90,10 @@ public class WelcomeController implements Initializable, SetupController {
         // Do nothing
     }
 
+    @Override
+    public SetupTask snapshot() {
+        // No input
+        return new WelcomeTask();
+    }
+
 }
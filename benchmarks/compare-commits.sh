@@ -0,0 +1,42 @@
+#!/bin/sh
+#
+# Runs the benchmarks for two commits and compares the results.
+#
+# Usage: compare-commits.sh <baseline-commit> <current-commit> [JMH options]
+#
+# Example: compare-commits.sh master HEAD -f 1 -wi 3 -i 5 LoggingInterceptor
+#
+set -e
+
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 <baseline-commit> <current-commit> [JMH options]"
+    exit 1
+fi
+
+BASELINE=$1
+CURRENT=$2
+shift 2
+
+ROOT=$(git rev-parse --show-toplevel)
+OUT="$ROOT/benchmarks/target/compare"
+mkdir -p "$OUT"
+
+run() {
+    commit=$1
+    shift
+    name=$(git -C "$ROOT" rev-parse --short "$commit")
+    dir=$(mktemp -d)
+    git -C "$ROOT" worktree add --detach "$dir" "$commit" > /dev/null
+    (cd "$dir" && mvn -B -q -DskipTests -pl benchmarks -am install)
+    cp "$dir/benchmarks/target/benchmarks.jar" "$OUT/benchmarks-$name.jar"
+    git -C "$ROOT" worktree remove --force "$dir"
+    java -jar "$OUT/benchmarks-$name.jar" -rf json -rff "$OUT/result-$name.json" "$@"
+}
+
+run "$BASELINE" "$@"
+run "$CURRENT" "$@"
+
+java -cp "$OUT/benchmarks-$(git -C "$ROOT" rev-parse --short "$CURRENT").jar" \
+    org.fuin.devsupwiz.benchmarks.CompareResults \
+    "$OUT/result-$(git -C "$ROOT" rev-parse --short "$BASELINE").json" \
+    "$OUT/result-$(git -C "$ROOT" rev-parse --short "$CURRENT").json"
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import javax.enterprise.inject.Vetoed;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.fuin.devsupwiz.common.AbstractSetupTask;
+
+/**
+ * Minimal task used for creating configurations of different size.
+ */
+@Vetoed
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = BenchmarkTask.KEY)
+public final class BenchmarkTask extends AbstractSetupTask {
+
+    /** Unique normalized name of the task. */
+    static final String KEY = "benchmark-task";
+
+    @XmlAttribute(name = "id")
+    private String id;
+
+    @XmlAttribute(name = "value")
+    private String value;
+
+    /**
+     * Default constructor for JAXB.
+     */
+    protected BenchmarkTask() {
+        super();
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param id
+     *            Unique identifier of the task.
+     * @param value
+     *            Some value.
+     */
+    public BenchmarkTask(final String id, final String value) {
+        super();
+        this.id = id;
+        this.value = value;
+    }
+
+    @Override
+    public final String getResource() {
+        return this.getClass().getPackage().getName().replace('.', '/') + "/"
+                + KEY;
+
+    }
+
+    @Override
+    public final String getFxml() {
+        return "/" + getResource() + ".fxml";
+    }
+
+    @Override
+    public final void execute() {
+        // Do nothing
+    }
+
+    @Override
+    public final boolean waitsForPreviousTasks() {
+        // Independent, so the pages can be clicked through while tasks run
+        return false;
+    }
+
+    @Override
+    public final String getType() {
+        return KEY;
+    }
+
+    @Override
+    public final String getTypeId() {
+        return KEY + "[" + id + "]";
+    }
+
+    /**
+     * Returns the value.
+     * 
+     * @return Some value.
+     */
+    public final String getValue() {
+        return value;
+    }
+
+    /**
+     * Creates the XML of a configuration with the given number of tasks.
+     * 
+     * @param name
+     *            Name of the configuration.
+     * @param count
+     *            Number of tasks.
+     * 
+     * @return Configuration XML.
+     */
+    static String createConfigXml(final String name, final int count) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<dev-setup-wizard name=\"" + name + "\">\n");
+        sb.append("    <tasks>\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("        <" + KEY + " id=\"" + i + "\" value=\"Value "
+                    + i + "\" />\n");
+
+        }
+        sb.append("    </tasks>\n");
+        sb.append("</dev-setup-wizard>\n");
+        return sb.toString();
+    }
+
+}
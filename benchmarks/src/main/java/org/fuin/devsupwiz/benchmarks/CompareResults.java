@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compares two JMH result files in JSON format (created with
+ * <code>-rf json</code>) and prints the relative change per benchmark. A change
+ * is marked as significant if the difference is larger than the sum of both
+ * score errors.
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    /**
+     * Compares two result files.
+     * 
+     * @param args
+     *            Baseline JSON file and the JSON file to compare with it.
+     * 
+     * @throws IOException
+     *             Error reading one of the files.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println(
+                    "Usage: CompareResults <baseline.json> <current.json>");
+            System.exit(1);
+        }
+        final Map<String, Score> baseline = read(new File(args[0]));
+        final Map<String, Score> current = read(new File(args[1]));
+        print(System.out, baseline, current);
+    }
+
+    private static void print(final PrintStream out,
+            final Map<String, Score> baseline,
+            final Map<String, Score> current) {
+        final String format = "%-70s %18s %18s %9s %s%n";
+        out.printf(format, "Benchmark", "Baseline", "Current", "Change", "");
+        final Map<String, Score> all = new TreeMap<>(baseline);
+        all.putAll(current);
+        for (final String key : all.keySet()) {
+            final Score before = baseline.get(key);
+            final Score after = current.get(key);
+            if (before == null || after == null) {
+                out.printf(format, key, before == null ? "-" : before.toString(),
+                        after == null ? "-" : after.toString(), "", "");
+                continue;
+            }
+            final double change = (after.score - before.score) / before.score
+                    * 100.0;
+            final boolean significant = Math.abs(after.score - before.score)
+                    > before.error + after.error;
+
+            out.printf(format, key, before, after,
+                    String.format(Locale.ROOT, "%+.1f%%", change),
+                    significant ? "*" : "");
+        }
+        out.println();
+        out.println("* Difference is larger than the combined score error. "
+                + "Mind the unit: For 'thrpt' higher is better, for all other "
+                + "modes lower is better.");
+    }
+
+    private static Map<String, Score> read(final File file)
+            throws IOException {
+        final JSONArray array = new JSONArray(FileUtils
+                .readFileToString(file, Charset.forName("utf-8")));
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        for (int i = 0; i < array.length(); i++) {
+            final JSONObject result = array.getJSONObject(i);
+            final StringBuilder key = new StringBuilder(
+                    shorten(result.getString("benchmark")));
+            final JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                for (final String name : new TreeMap<>(params.toMap())
+                        .keySet()) {
+                    key.append(" ").append(name).append("=")
+                            .append(params.get(name));
+                }
+            }
+            key.append(" (").append(result.getString("mode")).append(")");
+            final JSONObject metric = result.getJSONObject("primaryMetric");
+            final double error = metric.optDouble("scoreError", 0.0);
+            scores.put(key.toString(),
+                    new Score(metric.getDouble("score"),
+                            Double.isNaN(error) ? 0.0 : error,
+                            metric.getString("scoreUnit")));
+
+        }
+        return scores;
+    }
+
+    private static String shorten(final String benchmark) {
+        final String prefix = CompareResults.class.getPackage().getName() + ".";
+        if (benchmark.startsWith(prefix)) {
+            return benchmark.substring(prefix.length());
+        }
+        return benchmark;
+    }
+
+    /**
+     * Score of a single benchmark.
+     */
+    private static final class Score {
+
+        private final double score;
+
+        private final double error;
+
+        private final String unit;
+
+        Score(final double score, final double error, final String unit) {
+            super();
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.3f %s", score, unit);
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.devsupwiz.common.ConfigImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading and persisting configurations of different size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigImplBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int tasks;
+
+    private File file;
+
+    private ConfigImpl config;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("devsupwiz-benchmark-", ".xml");
+        FileUtils.write(file, createXml(tasks), Charset.forName("utf-8"));
+        config = ConfigImpl.load(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public ConfigImpl load() {
+        return ConfigImpl.load(file);
+    }
+
+    @Benchmark
+    public void persist() {
+        config.persist();
+    }
+
+    private static String createXml(final int count) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<dev-setup-wizard name=\"benchmark\">\n");
+        sb.append("    <tasks>\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("        <" + BenchmarkTask.KEY + " id=\"" + i
+                    + "\" value=\"Value " + i + "\" />\n");
+
+        }
+        sb.append("    </tasks>\n");
+        sb.append("</dev-setup-wizard>\n");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.fuin.devsupwiz.common.LogLine;
+import org.fuin.devsupwiz.common.LogLineStore;
+import org.fuin.devsupwiz.common.LogOutputStream;
+import org.fuin.devsupwiz.common.LogPartitions;
+import org.fuin.devsupwiz.common.LogViewOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.Level;
+import javafx.collections.ObservableList;
+
+/**
+ * Measures the throughput of the streams that capture the output of child
+ * processes. The UI store is replaced by one that only consumes the lines, so
+ * no JavaFX toolkit is required.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogOutputStreamBenchmark {
+
+    private static final int LINES = 100;
+
+    private byte[] chunk;
+
+    private LogViewOutputStream logViewOut;
+
+    private LogOutputStream logOut;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            sb.append("Unpacking libfoo-dev (1.2.3-4ubuntu" + i
+                    + ") over (1.2.3-3) ... äöü\n");
+        }
+        chunk = sb.toString().getBytes(Charset.forName("utf-8"));
+        logViewOut = new LogViewOutputStream(
+                new LogPartitions(new ConsumingStore(blackhole), 1000),
+                Level.INFO);
+
+        logOut = new LogOutputStream(org.slf4j.event.Level.INFO);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void logViewOutputStream() throws IOException {
+        logViewOut.write(chunk, 0, chunk.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void logOutputStream() throws IOException {
+        logOut.write(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Store that hands all lines to a black hole.
+     */
+    private static final class ConsumingStore implements LogLineStore {
+
+        private final Blackhole blackhole;
+
+        ConsumingStore(final Blackhole blackhole) {
+            super();
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void add(final LogLine line) {
+            blackhole.consume(line);
+        }
+
+        @Override
+        public ObservableList<LogLine> getLines() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void export(final Writer writer) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.interceptor.InvocationContext;
+
+import org.fuin.devsupwiz.common.LoggingInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Measures the overhead of the {@link LoggingInterceptor} compared to a direct
+ * call, with TRACE disabled and enabled. The invocation context is created
+ * once, so only the interceptor itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingInterceptorBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean trace;
+
+    private Target target;
+
+    private LoggingInterceptor interceptor;
+
+    private Context context;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final Logger logger = (Logger) LoggerFactory.getLogger(Target.class);
+        logger.setLevel(trace ? Level.TRACE : Level.INFO);
+        target = new Target();
+        interceptor = new LoggingInterceptor();
+        context = new Context(target,
+                Target.class.getMethod("add", int.class, int.class),
+                new Object[] { 1, 2 });
+    }
+
+    @Benchmark
+    public int direct() {
+        return target.add(1, 2);
+    }
+
+    @Benchmark
+    public Object intercepted() throws Exception {
+        return interceptor.logMethodEntry(context);
+    }
+
+    /**
+     * Intercepted bean.
+     */
+    public static final class Target {
+
+        /**
+         * Adds two numbers.
+         * 
+         * @param a
+         *            First number.
+         * @param b
+         *            Second number.
+         * 
+         * @return Sum.
+         */
+        public int add(final int a, final int b) {
+            return a + b;
+        }
+
+    }
+
+    /**
+     * Invocation context that calls the target method directly.
+     */
+    private static final class Context implements InvocationContext {
+
+        private final Target target;
+
+        private final Method method;
+
+        private Object[] parameters;
+
+        private final Map<String, Object> contextData;
+
+        Context(final Target target, final Method method,
+                final Object[] parameters) {
+
+            super();
+            this.target = target;
+            this.method = method;
+            this.parameters = parameters;
+            this.contextData = new HashMap<>();
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public Object getTimer() {
+            return null;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Constructor<?> getConstructor() {
+            return null;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return parameters;
+        }
+
+        @Override
+        public void setParameters(final Object[] params) {
+            this.parameters = params;
+        }
+
+        @Override
+        public Map<String, Object> getContextData() {
+            return contextData;
+        }
+
+        @Override
+        public Object proceed() {
+            return target.add((Integer) parameters[0], (Integer) parameters[1]);
+        }
+
+    }
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.devsupwiz.common.ConfigImpl;
+import org.fuin.devsupwiz.common.SetupTask;
+
+/**
+ * Generates configurations of increasing size and verifies that the time of
+ * each operation grows no faster than allowed. The growth is estimated as the
+ * exponent <code>k</code> in <code>time ~ n^k</code> using a least squares fit
+ * over all sizes. A linear operation has an exponent of about 1, a
+ * quadratic one of about 2. A fixed overhead per call lowers the exponent for
+ * small sizes, so per-task operations are also measured as a whole run over
+ * all tasks. The program exits with a non-zero code if a bound is exceeded.
+ * The suite is also run by <code>ScalabilitySuiteTest</code> during the
+ * build.
+ */
+public final class ScalabilitySuite {
+
+    /** Sizes used if none are given. */
+    static final int[] DEFAULT_SIZES = new int[] { 250, 500, 1000, 2000, 4000 };
+
+    /** Minimum time to repeat a single operation for a stable average. */
+    private static final long MIN_MEASURE_NANOS = 200L * 1000 * 1000;
+
+    private ScalabilitySuite() {
+    }
+
+    /**
+     * Runs the suite.
+     * 
+     * @param args
+     *            Optional configuration sizes (number of tasks) in ascending
+     *            order.
+     * 
+     * @throws IOException
+     *             Error writing a configuration.
+     */
+    public static void main(final String[] args) throws IOException {
+        final boolean ok = run(sizes(args));
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Runs the suite and prints the results to standard out.
+     * 
+     * @param sizes
+     *            Configuration sizes (number of tasks) in ascending order.
+     * 
+     * @return <code>true</code> if no bound was exceeded.
+     * 
+     * @throws IOException
+     *             Error writing a configuration.
+     */
+    static boolean run(final int[] sizes) throws IOException {
+        final List<Operation> operations = operations();
+        final File dir = Files.createTempDirectory("devsupwiz-scalability-")
+                .toFile();
+        try {
+            // Warm up the JIT
+            for (final int size : sizes) {
+                measure(dir, size, operations);
+            }
+
+            final Map<Integer, double[]> results = new LinkedHashMap<>();
+            for (final int size : sizes) {
+                results.put(size, measure(dir, size, operations));
+            }
+            return report(sizes, operations, results);
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    private static int[] sizes(final String[] args) {
+        if (args.length == 0) {
+            return DEFAULT_SIZES;
+        }
+        final int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+
+    private static List<Operation> operations() {
+        final List<Operation> operations = new ArrayList<>();
+        operations.add(new Operation("ConfigImpl.load", 1.3,
+                (fixture) -> ConfigImpl.load(fixture.file)));
+        operations.add(new Operation("ConfigImpl.init", 1.3,
+                (fixture) -> fixture.config.init()));
+        operations.add(new Operation("ConfigImpl.findTask (per lookup)", 0.5,
+                (fixture) -> {
+                    fixture.config.findTask(fixture.nextTypeId());
+                }));
+        operations.add(new Operation("ConfigImpl.persist", 1.3,
+                (fixture) -> fixture.config.persist()));
+        operations.add(new Operation("Navigate all tasks", 1.3, (fixture) -> {
+            for (final SetupTask task : fixture.config.getTasks()) {
+                task.alreadyExecuted();
+            }
+        }));
+        // Every successful task persists the configuration, so executing all
+        // tasks costs one 'success' per task - A linear cost per task would
+        // make the whole run quadratic
+        operations.add(new Operation("SetupTask.success (per task)", 0.2,
+                (fixture) -> {
+                    fixture.config.getTasks().get(0).success();
+                }));
+        operations.add(new Operation("SetupTask.success (all tasks)", 1.3,
+                (fixture) -> {
+                    for (final SetupTask task : fixture.config.getTasks()) {
+                        task.success();
+                    }
+                    fixture.config.flush();
+                }));
+        return operations;
+    }
+
+    private static double[] measure(final File dir, final int size,
+            final List<Operation> operations) throws IOException {
+        final Fixture fixture = new Fixture(dir, size);
+        final double[] nanos = new double[operations.size()];
+        for (int i = 0; i < operations.size(); i++) {
+            nanos[i] = operations.get(i).measure(fixture);
+            // Don't let a background write slow down the next operation
+            fixture.config.flush();
+        }
+        return nanos;
+    }
+
+    private static boolean report(final int[] sizes,
+            final List<Operation> operations,
+            final Map<Integer, double[]> results) {
+        boolean ok = true;
+        final StringBuilder header = new StringBuilder(
+                String.format(Locale.ROOT, "%-34s", "Operation [ms]"));
+        for (final int size : sizes) {
+            header.append(String.format(Locale.ROOT, " %10s", "n=" + size));
+        }
+        header.append(
+                String.format(Locale.ROOT, " %9s %9s", "Exponent", "Bound"));
+        System.out.println(header);
+        for (int i = 0; i < operations.size(); i++) {
+            final Operation operation = operations.get(i);
+            final StringBuilder sb = new StringBuilder(
+                    String.format(Locale.ROOT, "%-34s", operation.name));
+            for (final int size : sizes) {
+                sb.append(String.format(Locale.ROOT, " %10.4f",
+                        results.get(size)[i] / 1000000.0));
+            }
+            final double exponent = exponent(sizes, results, i);
+            final boolean exceeded = exponent > operation.maxExponent;
+            sb.append(String.format(Locale.ROOT, " %9.2f %9.2f", exponent,
+                    operation.maxExponent));
+            if (exceeded) {
+                sb.append("  EXCEEDED");
+                ok = false;
+            }
+            System.out.println(sb);
+        }
+        return ok;
+    }
+
+    private static double exponent(final int[] sizes,
+            final Map<Integer, double[]> results, final int index) {
+        // Slope of the regression line through (log n, log time)
+        final int count = sizes.length;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXY = 0;
+        double sumXX = 0;
+        for (final int size : sizes) {
+            final double x = Math.log(size);
+            final double y = Math.log(results.get(size)[index]);
+            sumX = sumX + x;
+            sumY = sumY + y;
+            sumXY = sumXY + x * y;
+            sumXX = sumXX + x * x;
+        }
+        return (count * sumXY - sumX * sumY) / (count * sumXX - sumX * sumX);
+    }
+
+    /**
+     * Configuration of a given size on disk and loaded.
+     */
+    private static final class Fixture {
+
+        private final File file;
+
+        private final ConfigImpl config;
+
+        private final List<String> typeIds;
+
+        private int next;
+
+        Fixture(final File dir, final int size) throws IOException {
+            super();
+            file = new File(dir, "config-" + size + ".xml");
+            FileUtils.write(file,
+                    BenchmarkTask.createConfigXml("scalability", size),
+                    Charset.forName("utf-8"));
+
+            config = ConfigImpl.load(file);
+            typeIds = new ArrayList<>(size);
+            for (final SetupTask task : config.getTasks()) {
+                typeIds.add(task.getTypeId());
+            }
+        }
+
+        String nextTypeId() {
+            // Walk through all tasks, so the average over all positions is
+            // measured
+            final String typeId = typeIds.get(next);
+            next = (next + 1) % typeIds.size();
+            return typeId;
+        }
+
+    }
+
+    /**
+     * Operation to measure with the allowed growth.
+     */
+    private static final class Operation {
+
+        private final String name;
+
+        private final double maxExponent;
+
+        private final Action action;
+
+        Operation(final String name, final double maxExponent,
+                final Action action) {
+
+            super();
+            this.name = name;
+            this.maxExponent = maxExponent;
+            this.action = action;
+        }
+
+        /**
+         * Repeats the operation for a minimum time.
+         * 
+         * @return Average time per execution in nanoseconds.
+         */
+        double measure(final Fixture fixture) throws IOException {
+            int count = 0;
+            final long start = System.nanoTime();
+            long elapsed;
+            do {
+                action.run(fixture);
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MIN_MEASURE_NANOS);
+            return (double) elapsed / count;
+        }
+
+    }
+
+    /**
+     * Code to measure.
+     */
+    private interface Action {
+
+        void run(Fixture fixture) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.devsupwiz.base.DevSetupWizard;
+
+/**
+ * Launches the wizard in a fresh JVM for each repetition and measures the time
+ * from starting the process until the welcome page was rendered for the first
+ * time. The wizard prints a marker line at its first frame if the system
+ * property {@link DevSetupWizard#FIRST_FRAME_MARKER_PROPERTY} is set. The
+ * process is destroyed as soon as the marker was read.<br>
+ * <br>
+ * A <b>cold</b> run starts in a new working directory, so the wizard creates
+ * its logback configuration and has no persisted state. If the harness is
+ * allowed to write <code>/proc/sys/vm/drop_caches</code> (root), the page cache
+ * is dropped before each cold run as well. A <b>warm</b> run reuses the
+ * working directory of a previous run. The distribution of each fixture and
+ * mode is printed at the end.<br>
+ * <br>
+ * Optional system properties:
+ * <ul>
+ * <li><code>devsupwiz.startup.repetitions</code> - Runs per fixture and mode
+ * (default 5).</li>
+ * <li><code>devsupwiz.startup.headless</code> - Render with Monocle instead of
+ * the display (default <code>false</code>).</li>
+ * <li><code>devsupwiz.startup.jvm-args</code> - Additional space separated
+ * arguments for the JVM of the wizard, for example for class data
+ * sharing.</li>
+ * <li><code>devsupwiz.startup.max-warm-p50-millis</code> - Exit with 1 if the
+ * median of a warm run exceeds this value.</li>
+ * </ul>
+ */
+public final class StartupHarness {
+
+    private static final int[] DEFAULT_TASK_COUNTS = new int[] { 10, 200 };
+
+    private static final int DEFAULT_REPETITIONS = 5;
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private static final File DROP_CACHES = new File("/proc/sys/vm/drop_caches");
+
+    private StartupHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     * 
+     * @param args
+     *            Optional fixture configuration files. Configurations with 10
+     *            and 200 tasks are generated if no files are given.
+     * 
+     * @throws Exception
+     *             Error running the harness.
+     */
+    public static void main(final String[] args) throws Exception {
+        final int repetitions = Integer.getInteger(
+                "devsupwiz.startup.repetitions", DEFAULT_REPETITIONS);
+        final Long maxWarmP50 = Long
+                .getLong("devsupwiz.startup.max-warm-p50-millis");
+
+        final boolean ok;
+        final File baseDir = Files.createTempDirectory("devsupwiz-startup-")
+                .toFile();
+        try {
+            final List<File> fixtures = fixtures(baseDir, args);
+            final Map<String, long[]> results = new LinkedHashMap<>();
+            for (final File fixture : fixtures) {
+                final long[] cold = new long[repetitions];
+                for (int i = 0; i < repetitions; i++) {
+                    final File dir = new File(baseDir,
+                            "cold-" + fixture.getName() + "-" + i);
+                    dropCaches();
+                    cold[i] = launch(dir, fixture);
+                }
+                results.put(fixture.getName() + " (cold)", cold);
+
+                final File dir = new File(baseDir, "warm-" + fixture.getName());
+                // Discarded run that creates the files of the working directory
+                launch(dir, fixture);
+                final long[] warm = new long[repetitions];
+                for (int i = 0; i < repetitions; i++) {
+                    warm[i] = launch(dir, fixture);
+                }
+                results.put(fixture.getName() + " (warm)", warm);
+            }
+            ok = report(results, maxWarmP50);
+        } finally {
+            FileUtils.deleteQuietly(baseDir);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static List<File> fixtures(final File baseDir, final String[] args)
+            throws IOException {
+        final List<File> fixtures = new ArrayList<>();
+        if (args.length == 0) {
+            for (final int count : DEFAULT_TASK_COUNTS) {
+                final File file = new File(baseDir, "startup-" + count + ".xml");
+                FileUtils.write(file,
+                        BenchmarkTask.createConfigXml("startup", count),
+                        Charset.forName("utf-8"));
+                fixtures.add(file);
+            }
+        } else {
+            for (final String arg : args) {
+                final File file = new File(arg);
+                if (!file.isFile()) {
+                    throw new IllegalArgumentException(
+                            "Fixture configuration does not exist: " + file);
+                }
+                fixtures.add(file);
+            }
+        }
+        return fixtures;
+    }
+
+    private static void dropCaches() {
+        if (!DROP_CACHES.canWrite()) {
+            return;
+        }
+        try {
+            new ProcessBuilder("sync").inheritIO().start().waitFor();
+            FileUtils.write(DROP_CACHES, "3", Charset.forName("us-ascii"));
+        } catch (final IOException | InterruptedException ex) {
+            throw new RuntimeException("Failed to drop the page cache", ex);
+        }
+    }
+
+    /**
+     * Starts the wizard and waits for the first frame. The output is read by
+     * a separate thread, so a wizard that hangs without printing the marker
+     * fails the run after {@link #TIMEOUT_SECONDS}.
+     * 
+     * @return Milliseconds from starting the process until the first frame.
+     */
+    private static long launch(final File dir, final File fixture)
+            throws IOException, InterruptedException {
+        if (!dir.exists()) {
+            FileUtils.copyFile(fixture, new File(dir, fixture.getName()));
+        }
+        final ProcessBuilder builder = new ProcessBuilder(
+                command(fixture.getName())).directory(dir)
+                        .redirectErrorStream(true);
+        final long start = System.nanoTime();
+        final Process process = builder.start();
+        try {
+            final CompletableFuture<Long> firstFrame = new CompletableFuture<>();
+            final Thread reader = new Thread(() -> {
+                try (final BufferedReader in = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(),
+                                Charset.defaultCharset()))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.startsWith(DevSetupWizard.FIRST_FRAME_MARKER)) {
+                            firstFrame.complete(System.nanoTime());
+                            return;
+                        }
+                    }
+                    firstFrame.completeExceptionally(new IllegalStateException(
+                            "Wizard terminated without rendering a frame "
+                                    + "(exit code " + process.waitFor()
+                                    + "): " + fixture));
+                } catch (final IOException | InterruptedException ex) {
+                    firstFrame.completeExceptionally(ex);
+                }
+            }, "devsupwiz-startup-reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                return TimeUnit.NANOSECONDS
+                        .toMillis(firstFrame.get(TIMEOUT_SECONDS,
+                                TimeUnit.SECONDS) - start);
+            } catch (final TimeoutException ex) {
+                throw new IllegalStateException(
+                        "Wizard did not render a frame within "
+                                + TIMEOUT_SECONDS + " seconds: " + fixture);
+            } catch (final ExecutionException ex) {
+                throw new IllegalStateException(
+                        "Failed to read the output of the wizard: " + fixture,
+                        ex.getCause());
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> command(final String configName) {
+        final List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                "java").getPath());
+        command.add("-D" + DevSetupWizard.FIRST_FRAME_MARKER_PROPERTY + "=true");
+        if (Boolean.getBoolean("devsupwiz.startup.headless")) {
+            command.add("-Dglass.platform=Monocle");
+            command.add("-Dmonocle.platform=Headless");
+            command.add("-Dprism.order=sw");
+            command.add("-Dprism.text=t2k");
+        }
+        final String jvmArgs = System
+                .getProperty("devsupwiz.startup.jvm-args", "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(classpath());
+        command.add(DevSetupWizard.class.getName());
+        command.add(configName);
+        return command;
+    }
+
+    private static String classpath() {
+        // Maven's 'exec:java' does not set 'java.class.path' to the classpath
+        // of the project
+        final ClassLoader classLoader = StartupHarness.class.getClassLoader();
+        if (!(classLoader instanceof URLClassLoader)) {
+            return System.getProperty("java.class.path");
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final URL url : ((URLClassLoader) classLoader).getURLs()) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparatorChar);
+            }
+            sb.append(FileUtils.toFile(url).getPath());
+        }
+        return sb.toString();
+    }
+
+    private static boolean report(final Map<String, long[]> results,
+            final Long maxWarmP50) {
+        boolean ok = true;
+        System.out.println(String.format(Locale.ROOT,
+                "%-32s %5s %8s %8s %8s %8s %8s", "Fixture [ms]", "Runs", "Min",
+                "P50", "P90", "Max", "Mean"));
+        for (final Map.Entry<String, long[]> entry : results.entrySet()) {
+            final long[] millis = entry.getValue().clone();
+            Arrays.sort(millis);
+            final long p50 = percentile(millis, 50);
+            final StringBuilder sb = new StringBuilder(String.format(
+                    Locale.ROOT, "%-32s %5d %8d %8d %8d %8d %8.1f",
+                    entry.getKey(), millis.length, millis[0], p50,
+                    percentile(millis, 90), millis[millis.length - 1],
+                    Arrays.stream(millis).average().orElse(0)));
+            if (maxWarmP50 != null && entry.getKey().endsWith("(warm)")
+                    && p50 > maxWarmP50) {
+                sb.append("  EXCEEDED");
+                ok = false;
+            }
+            System.out.println(sb);
+        }
+        if (!DROP_CACHES.canWrite()) {
+            System.out.println("Page cache was not dropped before cold runs "
+                    + "(requires root)");
+
+        }
+        return ok;
+    }
+
+    private static long percentile(final long[] sorted, final double percent) {
+        final int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link ScalabilitySuite} as part of the build with the
+ * "benchmarks" profile, so an operation that grows faster than allowed fails
+ * that build.
+ */
+public class ScalabilitySuiteTest {
+
+    @Test
+    public void testGrowthWithinBounds() throws Exception {
+        assertTrue("Growth exponent exceeded - See output for details",
+                ScalabilitySuite.run(ScalabilitySuite.DEFAULT_SIZES));
+    }
+
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.devsupwiz.common.DevSupWizUtils;
+import org.fuin.devsupwiz.common.FxQueue;
+import org.fuin.devsupwiz.common.LatencyHistogram;
+import org.fuin.devsupwiz.common.RingBufferAsyncAppender;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.testfx.api.FxToolkit;
+import org.testfx.util.WaitForAsyncUtils;
+
+import de.perdoctus.fx.FxWeldApplicationLoader;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.stage.Stage;
+
+/**
+ * Starts the wizard headless with Monocle and measures the responsiveness of
+ * the UI while it is under load. Each scenario records the time between two
+ * pulses of the JavaFX application thread and the time a runnable waits in
+ * the JavaFX event queue. The test fails if the p99 of a scenario exceeds a
+ * threshold or if a line of the log flood was discarded before it reached the
+ * UI. The thresholds can be set with the system properties
+ * <code>devsupwiz.ui.max-pulse-millis</code> and
+ * <code>devsupwiz.ui.max-queue-millis</code>, the load with
+ * <code>devsupwiz.ui.lines</code> and <code>devsupwiz.ui.pages</code>. Like
+ * all tests of this module, it only runs with the "benchmarks" profile.<br>
+ * <br>
+ * The wizard reads its configuration from the current directory, so the test
+ * creates the configuration (and the wizard its logback configuration) there
+ * and removes both afterwards.
+ */
+public class UiResponsivenessTest {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(UiResponsivenessTest.class);
+
+    /** Logger that is displayed in the UI. */
+    private static final Logger TASKS_LOG = LoggerFactory
+            .getLogger("org.fuin.devsupwiz.tasks");
+
+    private static final String CONFIG_NAME = "ui-responsiveness-setup.xml";
+
+    private static final String LOGBACK_NAME = "dev-setup-wizard-logback.xml";
+
+    private static final int DEFAULT_LINES = 100000;
+
+    private static final int DEFAULT_PAGES = 200;
+
+    private static final long DEFAULT_MAX_PULSE_MILLIS = 100;
+
+    private static final long DEFAULT_MAX_QUEUE_MILLIS = 50;
+
+    /** Interval of the probe that measures the event queue latency. */
+    private static final long PROBE_INTERVAL_MILLIS = 5;
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Test
+    public void testResponsiveUnderLoad() throws Exception {
+        final int lines = Integer.getInteger("devsupwiz.ui.lines", DEFAULT_LINES);
+        final int pages = Integer.getInteger("devsupwiz.ui.pages", DEFAULT_PAGES);
+        final long maxPulseNanos = TimeUnit.MILLISECONDS
+                .toNanos(Long.getLong("devsupwiz.ui.max-pulse-millis",
+                        DEFAULT_MAX_PULSE_MILLIS));
+        final long maxQueueNanos = TimeUnit.MILLISECONDS
+                .toNanos(Long.getLong("devsupwiz.ui.max-queue-millis",
+                        DEFAULT_MAX_QUEUE_MILLIS));
+
+        headless();
+
+        // Pages = Welcome page + tasks + summary page
+        final File configFile = new File(CONFIG_NAME);
+        final File logbackFile = new File(LOGBACK_NAME);
+        final boolean logbackExisted = logbackFile.exists();
+        FileUtils.write(configFile,
+                BenchmarkTask.createConfigXml("ui-responsiveness", pages - 2),
+                Charset.forName("utf-8"));
+
+        try {
+            final Stage stage = FxToolkit.registerPrimaryStage();
+            final Application app = FxToolkit.setupApplication(
+                    FxWeldApplicationLoader.class, CONFIG_NAME);
+            final Scene scene = fx(() -> stage.getScene());
+            final Label posLabel = (Label) scene.lookup("#posLabel");
+            final Button next = button(scene, "Next");
+            final Button previous = button(scene, "Previous");
+            final CheckBox logAllTasks = (CheckBox) scene.lookup("#logAllTasks");
+
+            final Probe probe = new Probe();
+            probe.start();
+            try {
+                final List<Result> results = new ArrayList<>();
+                results.add(probe.measure("Idle", () -> {
+                    Thread.sleep(1000);
+                }));
+                final long[] discarded = new long[1];
+                results.add(probe.measure("Flood log with " + lines + " lines",
+                        () -> {
+                            fx(() -> logAllTasks.setSelected(true));
+                            discarded[0] = flood(lines);
+                        }));
+                results.add(probe.measure(
+                        "Next " + (pages - 1) + " pages (background queue)",
+                        () -> {
+                            for (int i = 1; i < pages; i++) {
+                                navigate(next, posLabel);
+                            }
+                        }));
+                results.add(probe.measure("Previous " + (pages - 1) + " pages",
+                        () -> {
+                            for (int i = 1; i < pages; i++) {
+                                navigate(previous, posLabel);
+                            }
+                        }));
+                final boolean ok = report(results, maxPulseNanos,
+                        maxQueueNanos);
+
+                assertEquals("Lines of the log flood discarded before they "
+                        + "reached the UI", 0, discarded[0]);
+                assertTrue("p99 threshold exceeded - See output for details", ok);
+            } finally {
+                probe.stop();
+                FxToolkit.cleanupApplication(app);
+            }
+        } finally {
+            FileUtils.deleteQuietly(configFile);
+            if (!logbackExisted) {
+                FileUtils.deleteQuietly(logbackFile);
+            }
+        }
+    }
+
+    private static void headless() {
+        System.setProperty("testfx.robot", "glass");
+        System.setProperty("testfx.headless", "true");
+        System.setProperty("glass.platform", "Monocle");
+        System.setProperty("monocle.platform", "Headless");
+        System.setProperty("prism.order", "sw");
+        System.setProperty("prism.text", "t2k");
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    private static Button button(final Scene scene, final String text)
+            throws TimeoutException {
+        return fx(() -> {
+            for (final Node node : scene.getRoot().lookupAll(".button")) {
+                if (node instanceof Button
+                        && text.equals(((Button) node).getText())) {
+                    return (Button) node;
+                }
+            }
+            throw new IllegalStateException("Button not found: " + text);
+        });
+    }
+
+    /**
+     * Logs the lines and waits until the UI has displayed them.
+     * 
+     * @return Number of lines discarded by the asynchronous appender.
+     */
+    private static long flood(final int lines) throws InterruptedException {
+        final RingBufferAsyncAppender appender = DevSupWizUtils
+                .findAppender("ASYNC_UI");
+        assertNotNull("Appender 'ASYNC_UI' not found", appender);
+        final long discardedBefore = appender.getDiscardedCount();
+        MDC.put(DevSupWizUtils.MDC_TASK_KEY, "ui-responsiveness");
+        try {
+            for (int i = 0; i < lines; i++) {
+                TASKS_LOG.info("Line {} of the log flood", i);
+            }
+        } finally {
+            MDC.remove(DevSupWizUtils.MDC_TASK_KEY);
+        }
+        // Wait until the UI has displayed all lines
+        final long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (FxQueue.getDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        WaitForAsyncUtils.waitForFxEvents();
+        final long discarded = appender.getDiscardedCount() - discardedBefore;
+        LOG.info("Lines discarded by the asynchronous appender: {}", discarded);
+        return discarded;
+    }
+
+    private static void navigate(final Button button, final Label posLabel)
+            throws InterruptedException, TimeoutException {
+        final CountDownLatch changed = new CountDownLatch(1);
+        final ChangeListener<String> listener =
+                (observable, oldValue, newValue) -> changed.countDown();
+        fx(() -> {
+            posLabel.textProperty().addListener(listener);
+            button.fire();
+            return null;
+        });
+        try {
+            if (!changed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(
+                        "Page did not change after '" + button.getText() + "': "
+                        + fx(() -> posLabel.getText()));
+            }
+        } finally {
+            fx(() -> posLabel.textProperty().removeListener(listener));
+        }
+    }
+
+    private static <T> T fx(final Callable<T> callable) throws TimeoutException {
+        return WaitForAsyncUtils.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                WaitForAsyncUtils.asyncFx(callable));
+    }
+
+    private static void fx(final Runnable runnable) throws TimeoutException {
+        WaitForAsyncUtils.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                WaitForAsyncUtils.asyncFx(runnable));
+    }
+
+    private static boolean report(final List<Result> results,
+            final long maxPulseNanos, final long maxQueueNanos) {
+        boolean ok = true;
+        System.out.println(String.format(Locale.ROOT,
+                "%-40s %10s %9s %9s %9s %9s %9s %9s", "Scenario [ms]",
+                "Duration", "Pulse p50", "Pulse p99", "Pulse max", "Queue p50",
+                "Queue p99", "Queue max"));
+        for (final Result result : results) {
+            final StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "%-40s %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                    result.name, millis(result.nanos),
+                    millis(result.pulses.getPercentile(50)),
+                    millis(result.pulses.getPercentile(99)),
+                    millis(result.pulses.getMax()),
+                    millis(result.queue.getPercentile(50)),
+                    millis(result.queue.getPercentile(99)),
+                    millis(result.queue.getMax())));
+            if (result.pulses.getPercentile(99) > maxPulseNanos) {
+                sb.append("  PULSE EXCEEDED");
+                ok = false;
+            }
+            if (result.queue.getPercentile(99) > maxQueueNanos) {
+                sb.append("  QUEUE EXCEEDED");
+                ok = false;
+            }
+            System.out.println(sb);
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "Thresholds (p99): pulse=%.0f ms, queue=%.0f ms",
+                millis(maxPulseNanos), millis(maxQueueNanos)));
+        return ok;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Measures the pulses and the event queue latency of the JavaFX
+     * application thread. JavaFX 8 has no public API for the duration of a
+     * pulse, so the time between two consecutive pulses is used instead. A
+     * pulse that takes long or a blocked application thread both show up as
+     * a long interval.
+     */
+    private static final class Probe {
+
+        private final ScheduledExecutorService executor;
+
+        private final AnimationTimer timer;
+
+        private volatile LatencyHistogram pulses;
+
+        private volatile LatencyHistogram queue;
+
+        Probe() {
+            super();
+            pulses = new LatencyHistogram("pulses");
+            queue = new LatencyHistogram("queue");
+            executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                final Thread thread = new Thread(runnable, "devsupwiz-ui-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer = new AnimationTimer() {
+                private long last;
+
+                @Override
+                public void handle(final long now) {
+                    if (last > 0) {
+                        pulses.record(now - last);
+                    }
+                    last = now;
+                }
+            };
+        }
+
+        void start() throws TimeoutException {
+            fx(() -> timer.start());
+            executor.scheduleAtFixedRate(() -> {
+                // Bypasses the FxQueue counter on purpose
+                final long queued = System.nanoTime();
+                final LatencyHistogram histogram = queue;
+                Platform.runLater(
+                        () -> histogram.record(System.nanoTime() - queued));
+            }, 0, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() throws TimeoutException {
+            executor.shutdownNow();
+            fx(() -> timer.stop());
+        }
+
+        Result measure(final String name, final Scenario scenario)
+                throws Exception {
+
+            LOG.info("Scenario: {}", name);
+            final LatencyHistogram scenarioPulses =
+                    new LatencyHistogram(name + " pulses");
+            final LatencyHistogram scenarioQueue =
+                    new LatencyHistogram(name + " queue");
+            pulses = scenarioPulses;
+            queue = scenarioQueue;
+            final long start = System.nanoTime();
+            scenario.run();
+            final long nanos = System.nanoTime() - start;
+            // Probes queued during the scenario still count for it
+            WaitForAsyncUtils.waitForFxEvents();
+            pulses = new LatencyHistogram("pulses");
+            queue = new LatencyHistogram("queue");
+            return new Result(name, nanos, scenarioPulses, scenarioQueue);
+        }
+
+    }
+
+    /**
+     * Code that puts load on the UI.
+     */
+    private interface Scenario {
+
+        void run() throws Exception;
+
+    }
+
+    /**
+     * Measured values of a scenario.
+     */
+    private static final class Result {
+
+        private final String name;
+
+        private final long nanos;
+
+        private final LatencyHistogram pulses;
+
+        private final LatencyHistogram queue;
+
+        Result(final String name, final long nanos,
+                final LatencyHistogram pulses, final LatencyHistogram queue) {
+            super();
+            this.name = name;
+            this.nanos = nanos;
+            this.pulses = pulses;
+            this.queue = queue;
+        }
+
+    }
+
+}
@@ -19,12 +19,40 @@ package org.fuin.devsupwiz.common;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Basic functionality for interceptors.
  */
 public abstract class AbstractInterceptor {
 
+    private static final ConcurrentMap<Method, MethodInfo> METHOD_INFOS =
+            new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the cached information for a given method. The information is
+     * created only once per method and shared by all interceptor instances.
+     * 
+     * @param method
+     *            Method to return the information for.
+     * 
+     * @return Method information.
+     */
+    protected static MethodInfo methodInfo(@NotNull final Method method) {
+        final MethodInfo info = METHOD_INFOS.get(method);
+        if (info != null) {
+            return info;
+        }
+        return METHOD_INFOS.computeIfAbsent(method, MethodInfo::new);
+    }
+
     /**
      * Create a signature string for a given method.
      * 
@@ -33,7 +61,7 @@ public abstract class AbstractInterceptor {
      * 
      * @return String representation of the method.
      */
-    protected final String signature(final Method method) {
+    protected static String signature(final Method method) {
         String name;
         if (method.getReturnType() == Void.class) {
             name = "void";
@@ -58,4 +86,86 @@ public abstract class AbstractInterceptor {
         return name;
     }
 
+    /**
+     * Information about an intercepted method that is expensive to create.
+     */
+    protected static final class MethodInfo {
+
+        private final Logger logger;
+
+        private final String signature;
+
+        private final String[] parameterNames;
+
+        private final boolean returnsValue;
+
+        /**
+         * Constructor with method.
+         * 
+         * @param method
+         *            Method to create the information for.
+         */
+        MethodInfo(@NotNull final Method method) {
+            super();
+            logger = LoggerFactory.getLogger(method.getDeclaringClass());
+            signature = signature(method);
+            final Parameter[] params = method.getParameters();
+            parameterNames = new String[params.length];
+            for (int i = 0; i < params.length; i++) {
+                parameterNames[i] = params[i].getName();
+            }
+            returnsValue = method.getReturnType() != void.class;
+        }
+
+        /**
+         * Returns the logger for the class that declares the method.
+         * 
+         * @return Logger.
+         */
+        public Logger getLogger() {
+            return logger;
+        }
+
+        /**
+         * Returns the signature of the method.
+         * 
+         * @return String representation of the method.
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * Returns the number of parameters.
+         * 
+         * @return Parameter count.
+         */
+        public int getParameterCount() {
+            return parameterNames.length;
+        }
+
+        /**
+         * Returns the name of a parameter.
+         * 
+         * @param index
+         *            Zero based index of the parameter.
+         * 
+         * @return Parameter name.
+         */
+        public String getParameterName(final int index) {
+            return parameterNames[index];
+        }
+
+        /**
+         * Determines if the method returns a value.
+         * 
+         * @return <code>true</code> if the return type is not
+         *         <code>void</code>.
+         */
+        public boolean isReturnsValue() {
+            return returnsValue;
+        }
+
+    }
+
 }
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Caches all bytes until a line feed and passes then the decoded text line to
+ * {@link #writeLine(String)}. Bulk writes are scanned for line feeds directly
+ * in the given buffer, so complete lines are decoded without copying them byte
+ * by byte. The class is not thread-safe.<br>
+ * <br>
+ * A carriage return that is not followed by a line feed marks an intermediate
+ * progress state (like the percentage output of "git clone" or "curl") that
+ * will be overwritten by the next one. Such states are passed to
+ * {@link #writeProgress(String)} and the line that finally terminates them is
+ * passed to {@link #writeProgressEnd(String)}. Empty states (like the one
+ * between the carriage returns of <code>"100%\r\r\n"</code>) are ignored and
+ * an empty terminating line ends the sequence with the last state.
+ */
+public abstract class AbstractLineOutputStream extends OutputStream {
+
+    private static final int INITIAL_SIZE = 256;
+
+    private final CharsetDecoder decoder;
+
+    private byte[] bytes;
+
+    private int count;
+
+    private CharBuffer chars;
+
+    private final byte[] single;
+
+    private boolean carriageReturn;
+
+    private boolean progress;
+
+    private String lastProgress;
+
+    /**
+     * Constructor with charset.
+     * 
+     * @param charset
+     *            Charset used to decode the bytes.
+     */
+    protected AbstractLineOutputStream(@NotNull final Charset charset) {
+        super();
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = new byte[INITIAL_SIZE];
+        this.count = 0;
+        this.chars = CharBuffer.allocate(INITIAL_SIZE);
+        this.single = new byte[1];
+    }
+
+    @Override
+    public final void write(final int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public final void write(final byte[] b, final int off, final int len)
+            throws IOException {
+        final int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            final byte c = b[i];
+            if (carriageReturn) {
+                carriageReturn = false;
+                if (c == '\n') {
+                    emitLine(bytes, 0, count);
+                    count = 0;
+                    start = i + 1;
+                    continue;
+                }
+                emitProgress(bytes, 0, count);
+                count = 0;
+            }
+            if (c == '\n') {
+                if (count == 0) {
+                    emitLine(b, start, i - start);
+                } else {
+                    append(b, start, i - start);
+                    emitLine(bytes, 0, count);
+                    count = 0;
+                }
+                start = i + 1;
+            } else if (c == '\r') {
+                append(b, start, i - start);
+                carriageReturn = true;
+                start = i + 1;
+            }
+        }
+        if (start < end) {
+            append(b, start, end - start);
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > bytes.length) {
+            final byte[] newBytes = new byte[Math.max(bytes.length * 2,
+                    capacity)];
+            System.arraycopy(bytes, 0, newBytes, 0, count);
+            bytes = newBytes;
+        }
+    }
+
+    private void append(final byte[] b, final int off, final int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, bytes, count, len);
+        count = count + len;
+    }
+
+    private void emitLine(final byte[] b, final int off, final int len) {
+        final String line = decode(b, off, len);
+        if (progress) {
+            progress = false;
+            writeProgressEnd(line.isEmpty() ? lastProgress : line);
+            lastProgress = null;
+        } else {
+            writeLine(line);
+        }
+    }
+
+    private void emitProgress(final byte[] b, final int off, final int len) {
+        if (len > 0) {
+            progress = true;
+            lastProgress = decode(b, off, len);
+            writeProgress(lastProgress);
+        }
+    }
+
+    private String decode(final byte[] b, final int off, final int len) {
+        final int maxChars = (int) Math
+                .ceil(len * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < maxChars) {
+            chars = CharBuffer.allocate(maxChars);
+        }
+        chars.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(b, off, len), chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars.toString();
+    }
+
+    /**
+     * Writes a complete line.
+     * 
+     * @param line
+     *            Decoded line without line feed.
+     */
+    protected abstract void writeLine(@NotNull String line);
+
+    /**
+     * Writes an intermediate progress state that replaces the previous one.
+     * The default implementation writes it as a complete line.
+     * 
+     * @param line
+     *            Decoded progress state without carriage return.
+     */
+    protected void writeProgress(@NotNull final String line) {
+        writeLine(line);
+    }
+
+    /**
+     * Writes the line that terminates a sequence of progress states. The
+     * default implementation writes it as a complete line.
+     * 
+     * @param line
+     *            Decoded line without line feed.
+     */
+    protected void writeProgressEnd(@NotNull final String line) {
+        writeLine(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        carriageReturn = false;
+        if (count > 0 || progress) {
+            emitLine(bytes, 0, count);
+            count = 0;
+        }
+        super.close();
+    }
+
+}
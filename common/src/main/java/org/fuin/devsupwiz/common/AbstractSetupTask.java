@@ -17,19 +17,48 @@
  */
 package org.fuin.devsupwiz.common;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Base class for setup tasks that implements the hash code and equals functions
- * based on the {@link #getTypeId()} method.
+ * based on the {@link #getTypeId()} method.<br>
+ * <br>
+ * Long running tasks can record completed sub-steps with
+ * {@link #checkpoint(String)} or {@link #runStep(String, Runnable)}. The
+ * checkpoints are persisted with the configuration, so if the wizard is
+ * interrupted, the next execution of the task only runs the remaining steps.
+ * Checkpoints are discarded when the task succeeds or its input changes.
  */
 public abstract class AbstractSetupTask implements SetupTask {
 
+    private static final Logger LOG = LoggerFactory
+            .getLogger(AbstractSetupTask.class);
+
     private transient Config config;
 
     @XmlAttribute(name = "executed")
     private Boolean executed;
 
+    @XmlAttribute(name = "fingerprint")
+    private String fingerprint;
+
+    @XmlAttribute(name = "checkpoint-fingerprint")
+    private String checkpointFingerprint;
+
+    @XmlElement(name = "checkpoint")
+    private List<String> checkpoints;
+
     /**
      * Returns the current configuration.
      * 
@@ -44,14 +73,128 @@ public abstract class AbstractSetupTask implements SetupTask {
         this.config = config;
     }
 
-    @Override
-    public final void success() {
+    private void assertConfig() {
         if (config == null) {
             throw new IllegalStateException(
                     "Configuration not set - Did you forget to call 'init(..)' method in a test?");
         }
-        executed = true;
-        config.persist();
+    }
+
+    @Override
+    public final void success() {
+        assertConfig();
+        // The configuration may be persisted by another thread
+        synchronized (config) {
+            executed = true;
+            fingerprint = TaskFingerprint.of(this);
+            synchronized (this) {
+                checkpoints = null;
+                checkpointFingerprint = null;
+            }
+        }
+        // Writing the whole configuration for every task would make running
+        // all tasks quadratic - If the changes are lost, the checkpoints that
+        // are still on disk let the task skip its completed steps
+        config.persistLater();
+    }
+
+    /**
+     * Determines if a sub-step was already completed by a previous execution
+     * of the task with the same input.
+     * 
+     * @param step
+     *            Name of the step that is unique within the task.
+     * 
+     * @return <code>true</code> if the step can be skipped.
+     */
+    protected final synchronized boolean isCheckpointed(
+            @NotEmpty final String step) {
+        if (checkpoints == null || !checkpoints.contains(step)) {
+            return false;
+        }
+        return TaskFingerprint.of(this).equals(checkpointFingerprint);
+    }
+
+    /**
+     * Durably records that a sub-step was completed. The configuration is
+     * persisted immediately. Checkpoints recorded for a different input of the
+     * task are discarded.
+     * 
+     * @param step
+     *            Name of the step that is unique within the task.
+     */
+    protected final void checkpoint(@NotEmpty final String step) {
+        assertConfig();
+        // The configuration may be persisted by another thread
+        synchronized (config) {
+            synchronized (this) {
+                final String current = TaskFingerprint.of(this);
+                if (checkpoints == null
+                        || !current.equals(checkpointFingerprint)) {
+                    checkpoints = new ArrayList<>();
+                    checkpointFingerprint = current;
+                }
+                if (checkpoints.contains(step)) {
+                    return;
+                }
+                checkpoints.add(step);
+            }
+            config.persist();
+        }
+    }
+
+    /**
+     * Runs a sub-step unless it was already completed and records a
+     * checkpoint after it succeeded. The step is reported to the
+     * {@link ProgressReporter} and its duration is added to the
+     * {@link ExecutionHistory}.
+     * 
+     * @param step
+     *            Name of the step that is unique within the task.
+     * @param runnable
+     *            Code of the step.
+     */
+    protected final void runStep(@NotEmpty final String step,
+            @NotNull final Runnable runnable) {
+        assertConfig();
+        if (isCheckpointed(step)) {
+            LOG.info("Step already completed: {}", step);
+            return;
+        }
+        ProgressReporter.step(step);
+        final long start = System.nanoTime();
+        runnable.run();
+        if (config.getCommandRunner().executesCommands()) {
+            ExecutionHistory.getDefault().record(getTypeId(), getType(), step,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        checkpoint(step);
+    }
+
+    /**
+     * Returns the completed sub-steps.
+     * 
+     * @return Names of the steps in the order they were completed or an empty
+     *         list if there are no checkpoints for the current input.
+     */
+    public final synchronized List<String> getCheckpoints() {
+        if (checkpoints == null
+                || !TaskFingerprint.of(this).equals(checkpointFingerprint)) {
+
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(checkpoints));
+    }
+
+    /**
+     * Returns the fingerprint of the task's input at the time it was executed.
+     * 
+     * @return Value of {@link TaskFingerprint#of(SetupTask)} when
+     *         {@link #success()} was called or <code>null</code> if the task
+     *         was not executed yet (or before fingerprints were introduced).
+     */
+    public final String getExecutedFingerprint() {
+        return fingerprint;
     }
 
     @Override
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Bounded store for log lines. Lines may be added from any thread, but the
+ * observable list is only modified in the JavaFX application thread. Lines
+ * added in the meantime are collected and appended as a single batch. If the
+ * maximum number of lines is exceeded, the oldest lines are dropped. Progress
+ * states replace the previous progress state in place instead of being
+ * appended. At most the maximum number of lines wait for the JavaFX
+ * application thread. If more lines are added in the meantime, the oldest
+ * waiting lines are dropped before they are displayed and counted in
+ * {@link Metrics#LOG_LINES_DROPPED}.
+ */
+public final class BoundedLogLineStore implements LogLineStore {
+
+    /** Default maximum number of lines to keep. */
+    public static final int DEFAULT_MAX_LINES = 10000;
+
+    private final int maxLines;
+
+    private final ObservableList<LogLine> lines;
+
+    private final Queue<LogLine> pending;
+
+    private final AtomicInteger pendingCount;
+
+    private final AtomicLong dropped;
+
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Constructor with default maximum number of lines.
+     */
+    public BoundedLogLineStore() {
+        this(DEFAULT_MAX_LINES);
+    }
+
+    /**
+     * Constructor with maximum number of lines.
+     * 
+     * @param maxLines
+     *            Maximum number of lines to keep.
+     */
+    public BoundedLogLineStore(final int maxLines) {
+        super();
+        if (maxLines < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of lines must be greater than zero, but was: "
+                            + maxLines);
+        }
+        this.maxLines = maxLines;
+        this.lines = FXCollections.observableArrayList();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.dropped = new AtomicLong();
+        this.scheduled = new AtomicBoolean(false);
+    }
+
+    @Override
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    @Override
+    public ObservableList<LogLine> getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of lines that were dropped before they were
+     * displayed.
+     * 
+     * @return Number of lines dropped since the store was created.
+     */
+    public long getDroppedLines() {
+        return dropped.get();
+    }
+
+    @Override
+    public void add(@NotNull final LogLine line) {
+        pending.add(line);
+        if (pendingCount.incrementAndGet() > maxLines
+                && pending.poll() != null) {
+            // Only the latest lines can be displayed anyway
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            Metrics.LOG_LINES_DROPPED.increment();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                drain();
+            } else {
+                FxQueue.runLater(this::drain);
+            }
+        }
+    }
+
+    @Override
+    public void export(@NotNull final Writer writer) throws IOException {
+        final List<LogLine> copy;
+        if (Platform.isFxApplicationThread()) {
+            copy = new ArrayList<>(lines);
+        } else {
+            final FutureTask<List<LogLine>> task = new FutureTask<>(
+                    () -> new ArrayList<>(lines));
+            FxQueue.runLater(task);
+            try {
+                copy = task.get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while copying lines", ex);
+            } catch (final ExecutionException ex) {
+                throw new IOException("Failed to copy lines", ex.getCause());
+            }
+        }
+        for (final LogLine line : copy) {
+            writer.write(line.getText());
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        final List<LogLine> batch = new ArrayList<>();
+        LogLine line;
+        while ((line = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            final int last = batch.size() - 1;
+            if (last >= 0 && line.replaces(batch.get(last))) {
+                batch.set(last, line);
+            } else {
+                batch.add(line);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!lines.isEmpty()) {
+            final int last = lines.size() - 1;
+            if (batch.get(0).replaces(lines.get(last))) {
+                lines.set(last, batch.remove(0));
+                if (batch.isEmpty()) {
+                    return;
+                }
+            }
+        }
+        if (batch.size() >= maxLines) {
+            lines.setAll(batch.subList(batch.size() - maxLines, batch.size()));
+            return;
+        }
+        final int overflow = lines.size() + batch.size() - maxLines;
+        if (overflow > 0) {
+            lines.remove(0, overflow);
+        }
+        lines.addAll(batch);
+    }
+
+}
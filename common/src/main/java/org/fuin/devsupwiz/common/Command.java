@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Shell command to be executed by a {@link CommandRunner}.
+ */
+public final class Command {
+
+    private final String pw;
+
+    private final String cmd;
+
+    private final long timeoutSeconds;
+
+    private final Map<String, String> env;
+
+    private final File workingDir;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param pw
+     *            Password for "sudo" or <code>null</code> if the command does
+     *            not run with "sudo".
+     * @param cmd
+     *            Command to execute.
+     * @param timeoutSeconds
+     *            Timeout in seconds.
+     * @param env
+     *            Environment variables.
+     * @param workingDir
+     *            Working directory where to execute the command inside.
+     */
+    public Command(@Nullable final String pw, @NotEmpty final String cmd,
+            final long timeoutSeconds, @NotNull final Map<String, String> env,
+            @NotNull final File workingDir) {
+        super();
+        this.pw = pw;
+        this.cmd = cmd;
+        this.timeoutSeconds = timeoutSeconds;
+        this.env = Collections.unmodifiableMap(new HashMap<>(env));
+        this.workingDir = workingDir;
+    }
+
+    /**
+     * Returns the password for "sudo".
+     * 
+     * @return Password or <code>null</code>.
+     */
+    @Nullable
+    public String getPw() {
+        return pw;
+    }
+
+    /**
+     * Returns the command without "sudo".
+     * 
+     * @return Command as given by the task.
+     */
+    public String getCmd() {
+        return cmd;
+    }
+
+    /**
+     * Returns the timeout.
+     * 
+     * @return Timeout in seconds.
+     */
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * Returns the environment variables.
+     * 
+     * @return Immutable map.
+     */
+    public Map<String, String> getEnv() {
+        return env;
+    }
+
+    /**
+     * Returns the working directory.
+     * 
+     * @return Directory where to execute the command inside.
+     */
+    public File getWorkingDir() {
+        return workingDir;
+    }
+
+    /**
+     * Determines if the command runs with "sudo".
+     * 
+     * @return <code>true</code> if a password is set.
+     */
+    public boolean isSudo() {
+        return pw != null;
+    }
+
+    /**
+     * Returns the command to pass to the shell. Includes the password if the
+     * command runs with "sudo", so never log or store the result.
+     * 
+     * @return Shell command.
+     */
+    public String getShellCmd() {
+        if (pw == null) {
+            return cmd;
+        }
+        return "echo " + pw + " | sudo -S " + cmd;
+    }
+
+    /**
+     * Returns a key that identifies the command without the password and the
+     * environment.
+     * 
+     * @return Key used for recording and replaying commands.
+     */
+    public String getKey() {
+        return key(isSudo(), cmd, workingDir);
+    }
+
+    /**
+     * Returns a key that identifies a command.
+     * 
+     * @param sudo
+     *            Command runs with "sudo".
+     * @param cmd
+     *            Command without "sudo".
+     * @param workingDir
+     *            Working directory.
+     * 
+     * @return Key used for recording and replaying commands.
+     */
+    static String key(final boolean sudo, final String cmd,
+            final File workingDir) {
+        return (sudo ? "sudo " : "") + cmd + " @ " + workingDir.getPath();
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+
+}
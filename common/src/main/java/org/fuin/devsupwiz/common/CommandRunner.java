@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.OutputStream;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Runs shell commands on behalf of the {@link ShellCommandExecutor}. The
+ * runner used by default is selected with {@link CommandRunners}.
+ */
+public interface CommandRunner {
+
+    /**
+     * Runs a command and waits until it terminated.
+     * 
+     * @param command
+     *            Command to run.
+     * @param out
+     *            Standard output stream.
+     * @param err
+     *            Error output stream.
+     * 
+     * @return Exit code (always zero).
+     * 
+     * @throws RuntimeException
+     *             The command could not be started, timed out or returned a
+     *             non-zero exit code. The exit code is available from a cause
+     *             of type <code>org.apache.commons.exec.ExecuteException</code>.
+     */
+    public int run(@NotNull Command command, @NotNull OutputStream out,
+            @NotNull OutputStream err);
+
+    /**
+     * Determines if the runner really executes the commands. Durations are
+     * only added to the {@link ExecutionHistory} if this is the case.
+     * 
+     * @return <code>true</code> if commands are executed on this machine.
+     */
+    public default boolean executesCommands() {
+        return true;
+    }
+
+}
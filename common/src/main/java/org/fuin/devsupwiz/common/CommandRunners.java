@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Provides the {@link CommandRunner} used by the {@link ShellCommandExecutor}.
+ * Every configuration has its own runner (see
+ * {@link Config#getCommandRunner()}), which is bound to the thread that
+ * executes the configuration's tasks. Commands executed by a thread without
+ * bound runner use the default runner. The default runner is selected with
+ * the system property {@value #PROPERTY}:
+ * <ul>
+ * <li><code>local</code> - Execute the commands on this machine
+ * (default).</li>
+ * <li><code>record:&lt;file&gt;</code> - Execute the commands on this machine
+ * and append them with their output to the file.</li>
+ * <li><code>replay:&lt;file&gt;</code> - Serve the commands from a recorded
+ * file without executing anything.</li>
+ * </ul>
+ */
+public final class CommandRunners {
+
+    /** System property that selects the default runner. */
+    public static final String PROPERTY = "devsupwiz.command-runner";
+
+    private static final ThreadLocal<CommandRunner> BOUND = new ThreadLocal<>();
+
+    private static volatile CommandRunner defaultRunner;
+
+    private CommandRunners() {
+    }
+
+    /**
+     * Returns the runner for the current thread.
+     * 
+     * @return Runner bound to the thread or the default runner.
+     */
+    public static CommandRunner get() {
+        final CommandRunner bound = BOUND.get();
+        if (bound != null) {
+            return bound;
+        }
+        return getDefault();
+    }
+
+    /**
+     * Binds a runner to the current thread. Commands executed by the thread
+     * use it until another runner is bound.
+     * 
+     * @param runner
+     *            Runner to use or <code>null</code> to use the default
+     *            runner.
+     * 
+     * @return Runner that was bound before or <code>null</code> if the thread
+     *         used the default runner.
+     */
+    @Nullable
+    public static CommandRunner bind(@Nullable final CommandRunner runner) {
+        final CommandRunner previous = BOUND.get();
+        if (runner == null) {
+            BOUND.remove();
+        } else {
+            BOUND.set(runner);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the default runner. It is created from the system property on
+     * first access unless it was set before.
+     * 
+     * @return Runner used by threads without bound runner.
+     */
+    public static CommandRunner getDefault() {
+        CommandRunner current = defaultRunner;
+        if (current == null) {
+            synchronized (CommandRunners.class) {
+                current = defaultRunner;
+                if (current == null) {
+                    current = create(System.getProperty(PROPERTY, "local"));
+                    defaultRunner = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the default runner, for example in tests.
+     * 
+     * @param runner
+     *            Runner to use from now on by threads without bound runner.
+     */
+    public static void setDefault(@NotNull final CommandRunner runner) {
+        defaultRunner = runner;
+    }
+
+    /**
+     * Creates a runner from a textual definition.
+     * 
+     * @param definition
+     *            One of <code>local</code>, <code>record:&lt;file&gt;</code> or
+     *            <code>replay:&lt;file&gt;</code>.
+     * 
+     * @return New runner.
+     */
+    public static CommandRunner create(@NotNull final String definition) {
+        final String def = definition.trim();
+        if (def.equals("local")) {
+            return new LocalCommandRunner();
+        }
+        if (def.startsWith("record:")) {
+            return new RecordingCommandRunner(new LocalCommandRunner(),
+                    new File(def.substring("record:".length())));
+        }
+        if (def.startsWith("replay:")) {
+            return new ReplayingCommandRunner(
+                    new File(def.substring("replay:".length())));
+        }
+        throw new IllegalArgumentException("Unknown command runner '" + definition
+                + "' - Expected 'local', 'record:<file>' or 'replay:<file>'");
+    }
+
+}
@@ -39,10 +39,34 @@ public interface Config {
     public List<SetupTask> getTasks();
 
     /**
-     * Saves any changes made.
+     * Saves any changes made. Implementations synchronize on the instance, so
+     * code that changes tasks while holding the configuration's lock never
+     * has its changes written half.
      */
     public void persist();
 
+    /**
+     * Saves the changes made soon in the background. Changes made within a
+     * short time are written together, so calling the method for every task
+     * does not write the whole configuration once per task. The default
+     * implementation calls {@link #persist()}.
+     */
+    public default void persistLater() {
+        persist();
+    }
+
+    /**
+     * Returns the runner for the shell commands of the tasks. It is bound to
+     * the thread that executes the tasks (see
+     * {@link CommandRunners#bind(CommandRunner)}). The default implementation
+     * returns {@link CommandRunners#getDefault()}.
+     * 
+     * @return Runner.
+     */
+    public default CommandRunner getCommandRunner() {
+        return CommandRunners.getDefault();
+    }
+
     /**
      * Tries to locate a task by it's unique type id.
      * 
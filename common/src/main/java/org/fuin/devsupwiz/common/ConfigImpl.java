@@ -17,17 +17,26 @@
  */
 package org.fuin.devsupwiz.common;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
 import javax.enterprise.inject.Vetoed;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
@@ -48,17 +57,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Setup configuration.
+ * Setup configuration. Changes saved with {@link #persistLater()} are written
+ * by a background thread after {@link #PERSIST_DELAY_MILLIS} and before the
+ * JVM exits.
  */
 @Vetoed
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "dev-setup-wizard")
 public final class ConfigImpl implements Config {
 
+    /** Time to collect further changes before writing them in the background. */
+    public static final long PERSIST_DELAY_MILLIS = 200;
+
     private static final Charset UTF8 = Charset.forName("utf-8");
 
     private static final Logger LOG = LoggerFactory.getLogger(ConfigImpl.class);
 
+    private static volatile JAXBContext jaxbContext;
+
     @NotEmpty
     @XmlAttribute(name = "name")
     private String name;
@@ -69,7 +85,11 @@ public final class ConfigImpl implements Config {
 
     private transient File file;
 
-    private transient Class<?>[] classes;
+    private transient volatile Map<String, SetupTask> tasksByTypeId;
+
+    private final transient AtomicBoolean pending = new AtomicBoolean();
+
+    private transient volatile CommandRunner commandRunner;
 
     /**
      * Default constructor for JAXB.
@@ -133,25 +153,50 @@ public final class ConfigImpl implements Config {
         return Collections.unmodifiableList(tasks);
     }
 
-    private final void setFile(final File file) {
-        this.file = file;
+    @Override
+    public final CommandRunner getCommandRunner() {
+        final CommandRunner runner = commandRunner;
+        if (runner == null) {
+            return CommandRunners.getDefault();
+        }
+        return runner;
     }
 
-    private final void setClasses(final Class<?>[] classes) {
-        this.classes = classes;
+    /**
+     * Sets the runner for the shell commands of the tasks.
+     * 
+     * @param commandRunner
+     *            Runner or <code>null</code> to use
+     *            {@link CommandRunners#getDefault()}.
+     */
+    public final void setCommandRunner(
+            @Nullable final CommandRunner commandRunner) {
+        this.commandRunner = commandRunner;
+    }
+
+    private final void setFile(final File file) {
+        this.file = file;
     }
 
     @Override
-    public final void persist() {
+    public final synchronized void persist() {
         // Only persist in case the config was loaded from disk
-        if (classes != null) {
+        if (file != null) {
+            Metrics.CONFIG_PERSISTED.increment();
             try {
-                final JAXBContext ctx = JAXBContext.newInstance(classes);
-                final Marshaller marshaller = ctx.createMarshaller();
+                final Marshaller marshaller = jaxbContext().createMarshaller();
                 marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-                try (final Writer writer = new BufferedWriter(new FileWriter(file))) {
+                // Tasks persist checkpoints while they run, so a crash must
+                // never leave a truncated file behind
+                final File tmp = new File(file.getPath() + ".tmp");
+                try (final Writer writer = Files
+                        .newBufferedWriter(tmp.toPath(), UTF8)) {
                     marshaller.marshal(this, writer);
                 }
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+
+                        StandardCopyOption.ATOMIC_MOVE);
             } catch (final IOException | JAXBException ex) {
                 throw new RuntimeException("Error saving config to: " + file,
                         ex);
@@ -159,6 +204,25 @@ public final class ConfigImpl implements Config {
         }
     }
 
+    @Override
+    public final void persistLater() {
+        // Only persist in case the config was loaded from disk
+        if (file != null && !pending.getAndSet(true)) {
+            Persister.schedule(this);
+        }
+    }
+
+    /**
+     * Writes changes saved with {@link #persistLater()} that were not written
+     * yet. Does nothing if there are no such changes.
+     */
+    public final void flush() {
+        if (pending.getAndSet(false)) {
+            Persister.done(this);
+            persist();
+        }
+    }
+
     /**
      * Initializes the instance.
      */
@@ -168,6 +232,7 @@ public final class ConfigImpl implements Config {
                 task.init(this);
             }
         }
+        tasksByTypeId = null;
     }
 
     @SuppressWarnings("unchecked")
@@ -176,12 +241,16 @@ public final class ConfigImpl implements Config {
         if (tasks == null) {
             return null;
         }
-        for (final SetupTask task : tasks) {
-            if (task.getTypeId().equals(key)) {
-                return (T) task;
+        Map<String, SetupTask> map = tasksByTypeId;
+        if (map == null) {
+            // The task list does not change after construction
+            map = new HashMap<>();
+            for (final SetupTask task : tasks) {
+                map.putIfAbsent(task.getTypeId(), task);
             }
+            tasksByTypeId = map;
         }
-        return null;
+        return (T) map.get(key);
     }
 
     /**
@@ -196,6 +265,42 @@ public final class ConfigImpl implements Config {
         init();
     }
 
+    /**
+     * Returns the JAXB context for the configuration and all setup tasks found
+     * in the classpath. The context is thread safe and created only once, so
+     * it is shared by all configurations.
+     * 
+     * @return JAXB context.
+     */
+    public static JAXBContext jaxbContext() {
+        JAXBContext ctx = jaxbContext;
+        if (ctx == null) {
+            synchronized (ConfigImpl.class) {
+                ctx = jaxbContext;
+                if (ctx == null) {
+                    final List<String> classNames = DevSupWizUtils
+                            .findSetupTasksInClasspath();
+                    LOG.info("Task classes from classpath: {}", classNames);
+
+                    final List<Class<?>> classList = DevSupWizUtils
+                            .loadClasses(classNames);
+                    classList.add(ConfigImpl.class);
+                    try {
+                        ctx = JAXBContext.newInstance(classList
+                                .toArray(new Class<?>[classList.size()]));
+                    } catch (final JAXBException ex) {
+                        throw new RuntimeException(
+                                "Failed to create JAXB context for: "
+                                        + classList,
+                                ex);
+                    }
+                    jaxbContext = ctx;
+                }
+            }
+        }
+        return ctx;
+    }
+
     /**
      * Creates a new instance from XML.
      * 
@@ -209,19 +314,9 @@ public final class ConfigImpl implements Config {
         LOG.info("Loading config {}", file);
         try {
             final String xmlConfig = FileUtils.readFileToString(file, UTF8);
-
-            final List<String> classNames = DevSupWizUtils
-                    .findSetupTasksInClasspath();
-            LOG.info("Task classes from classpath: {}", classNames);
-
-            final List<Class<?>> classList = DevSupWizUtils
-                    .loadClasses(classNames);
-            classList.add(ConfigImpl.class);
-            final Class<?>[] classes = classList
-                    .toArray(new Class<?>[classList.size()]);
-            final ConfigImpl config = JaxbUtils.unmarshal(xmlConfig, classes);
+            final ConfigImpl config = JaxbUtils.unmarshal(jaxbContext(),
+                    xmlConfig, null);
             config.setFile(file);
-            config.setClasses(classes);
             return config;
 
         } catch (final IOException ex) {
@@ -230,4 +325,54 @@ public final class ConfigImpl implements Config {
 
     }
 
+    /**
+     * Writes the configurations with changes saved by
+     * {@link ConfigImpl#persistLater()} in the background and flushes the
+     * remaining ones when the JVM exits.
+     */
+    private static final class Persister {
+
+        private static final ScheduledExecutorService EXECUTOR = Executors
+                .newSingleThreadScheduledExecutor((runnable) -> {
+                    final Thread thread = new Thread(runnable,
+                            "devsupwiz-config-persister");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        private static final Set<ConfigImpl> PENDING = ConcurrentHashMap
+                .newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (final ConfigImpl config : PENDING) {
+                    flush(config);
+                }
+            }, "devsupwiz-config-flush"));
+        }
+
+        private Persister() {
+        }
+
+        static void schedule(final ConfigImpl config) {
+            PENDING.add(config);
+            EXECUTOR.schedule(() -> flush(config), PERSIST_DELAY_MILLIS,
+                    TimeUnit.MILLISECONDS);
+
+        }
+
+        static void done(final ConfigImpl config) {
+            PENDING.remove(config);
+        }
+
+        private static void flush(final ConfigImpl config) {
+            try {
+                config.flush();
+            } catch (final RuntimeException ex) {
+                LOG.error("Failed to persist config in the background", ex);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Parses the progress meter that curl writes to the error output. Both the
+ * default meter
+ * 
+ * <pre>
+ *  45  100M   45 45.0M    0     0  10.2M      0  0:00:09  0:00:04  0:00:05 10.5M
+ * </pre>
+ * 
+ * and the bar of the <code>--progress-bar</code> option
+ * (<code>######       45.3%</code>) are supported.
+ */
+public final class CurlProgressParser implements ProgressParser {
+
+    private static final String STEP = "Downloading";
+
+    /**
+     * Percent, total, percent and size received, sent, speeds, times and
+     * current speed.
+     */
+    private static final Pattern METER = Pattern.compile(
+            "^(\\d+)\\s+(\\S+)\\s+(\\d+)\\s+(\\S+)\\s+(\\d+)\\s+(\\S+)"
+                    + "\\s+(\\S+)\\s+(\\S+)\\s+(\\S+)\\s+(\\S+)\\s+(\\S+)"
+                    + "\\s+(\\d+(?:\\.\\d+)?[kMGT]?)$");
+
+    private static final Pattern BAR = Pattern
+            .compile("^#*\\s*(\\d+(?:\\.\\d+)?)%$");
+
+    @Override
+    @Nullable
+    public Progress parse(@NotNull final String line) {
+        final String trimmed = line.trim();
+        final Matcher meter = METER.matcher(trimmed);
+        if (meter.matches()) {
+            // Total is zero if the size is unknown
+            final double fraction = "0".equals(meter.group(2))
+                    ? Progress.UNKNOWN
+                    : Integer.parseInt(meter.group(1)) / 100.0;
+            return new Progress(fraction, STEP, bytes(meter.group(12)),
+                    Progress.BYTES);
+        }
+        final Matcher bar = BAR.matcher(trimmed);
+        if (bar.matches()) {
+            return new Progress(Double.parseDouble(bar.group(1)) / 100.0, STEP);
+        }
+        return null;
+    }
+
+    private static double bytes(final String size) {
+        final char suffix = size.charAt(size.length() - 1);
+        if (Character.isDigit(suffix)) {
+            return Double.parseDouble(size);
+        }
+        final double value = Double
+                .parseDouble(size.substring(0, size.length() - 1));
+
+        switch (suffix) {
+        case 'k':
+            return value * 1024;
+        case 'M':
+            return value * 1024 * 1024;
+        case 'G':
+            return value * 1024 * 1024 * 1024;
+        default:
+            return value * 1024 * 1024 * 1024 * 1024;
+        }
+    }
+
+}
@@ -17,28 +17,87 @@
  */
 package org.fuin.devsupwiz.common;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
 /**
- * Helper methods that require JavaFX.
+ * Helper methods that require JavaFX. The icon images are shared using the
+ * {@link ResourceCache}.
  */
 public final class DevSupWizFxUtils {
 
     /** Key used for the MDC 'task' value. */
     public static final String MDC_TASK_KEY = "task";
 
-    /** To do icon 24x24 pixel. */
-    public static final Image ICON_TODO_24X24 = new Image("/todo-24x24.png");
+    /** Path of the to do icon 24x24 pixel. */
+    public static final String ICON_TODO_24X24_PATH = "/todo-24x24.png";
+
+    /** Path of the OK icon 24x24 pixel. */
+    public static final String ICON_OK_24X24_PATH = "/ok-24x24.png";
+
+    /** Path of the info icon 24x24 pixel. */
+    public static final String ICON_INFO_24X24_PATH = "/info-24x24.png";
+
+    /** Path of the error icon 24x24 pixel. */
+    public static final String ICON_ERROR_24X24_PATH = "/error-24x24.png";
+
+    /** Path of the error icon 16x16 pixel. */
+    public static final String ICON_ERROR_16X16_PATH = "/error-16x16.png";
+
+    /** Paths of all standard icons. */
+    public static final List<String> ICON_PATHS = Collections
+            .unmodifiableList(Arrays.asList(ICON_TODO_24X24_PATH,
+                    ICON_OK_24X24_PATH, ICON_INFO_24X24_PATH,
+                    ICON_ERROR_24X24_PATH, ICON_ERROR_16X16_PATH));
+
 
-    /** OK icon 24x24 pixel. */
-    public static final Image ICON_OK_24X24 = new Image("/ok-24x24.png");
+    /**
+     * To do icon 24x24 pixel.
+     * 
+     * @deprecated Use {@link #createIconTodo24x24()} or
+     *             {@link #ICON_TODO_24X24_PATH} - Will be removed in the next
+     *             release.
+     */
+    @Deprecated
+    public static final Image ICON_TODO_24X24 = ResourceCache
+            .getImage(DevSupWizFxUtils.ICON_TODO_24X24_PATH);
 
-    /** Info icon 24x24 pixel. */
-    public static final Image ICON_INFO_24X24 = new Image("/info-24x24.png");
-    
-    /** Error icon 16x16 pixel. */
-    public static final Image ICON_ERROR_16X16 = new Image("/error-16x16.png");
+    /**
+     * OK icon 24x24 pixel.
+     * 
+     * @deprecated Use {@link #createIconOk24x24()} or
+     *             {@link #ICON_OK_24X24_PATH} - Will be removed in the next
+     *             release.
+     */
+    @Deprecated
+    public static final Image ICON_OK_24X24 = ResourceCache
+            .getImage(DevSupWizFxUtils.ICON_OK_24X24_PATH);
+
+    /**
+     * Info icon 24x24 pixel.
+     * 
+     * @deprecated Use {@link #createIconInfo24x24()} or
+     *             {@link #ICON_INFO_24X24_PATH} - Will be removed in the next
+     *             release.
+     */
+    @Deprecated
+    public static final Image ICON_INFO_24X24 = ResourceCache
+            .getImage(DevSupWizFxUtils.ICON_INFO_24X24_PATH);
+
+    /**
+     * Error icon 16x16 pixel.
+     * 
+     * @deprecated Use {@link #createIconError16x16()} or
+     *             {@link #ICON_ERROR_16X16_PATH} - Will be removed in the
+     *             next release.
+     */
+    @Deprecated
+    public static final Image ICON_ERROR_16X16 = ResourceCache
+            .getImage(DevSupWizFxUtils.ICON_ERROR_16X16_PATH);
 
     private DevSupWizFxUtils() {
     }
@@ -49,7 +108,7 @@ public final class DevSupWizFxUtils {
      * @return New node instance.
      */
     public static ImageView createIconTodo24x24() {
-        return new ImageView(ICON_TODO_24X24);
+        return new ImageView(ResourceCache.getImage(ICON_TODO_24X24_PATH));
     }
 
     /**
@@ -58,7 +117,7 @@ public final class DevSupWizFxUtils {
      * @return New node instance.
      */
     public static ImageView createIconOk24x24() {
-        return new ImageView(ICON_OK_24X24);
+        return new ImageView(ResourceCache.getImage(ICON_OK_24X24_PATH));
     }
 
     /**
@@ -67,7 +126,16 @@ public final class DevSupWizFxUtils {
      * @return New node instance.
      */
     public static ImageView createIconInfo24x24() {
-        return new ImageView(ICON_INFO_24X24);
+        return new ImageView(ResourceCache.getImage(ICON_INFO_24X24_PATH));
+    }
+
+    /**
+     * Creates an error icon (24x24 pixel).
+     * 
+     * @return New node instance.
+     */
+    public static ImageView createIconError24x24() {
+        return new ImageView(ResourceCache.getImage(ICON_ERROR_24X24_PATH));
     }
 
     /**
@@ -76,7 +144,7 @@ public final class DevSupWizFxUtils {
      * @return New node instance.
      */
     public static ImageView createIconError16x16() {
-        return new ImageView(ICON_ERROR_16X16);
+        return new ImageView(ResourceCache.getImage(ICON_ERROR_16X16_PATH));
     }
 
 }
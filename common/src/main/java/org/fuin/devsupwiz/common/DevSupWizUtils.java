@@ -17,7 +17,6 @@
  */
 package org.fuin.devsupwiz.common;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -26,12 +25,14 @@ import java.nio.file.Files;
 import java.nio.file.attribute.PosixFilePermission;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Path;
@@ -43,11 +44,13 @@ import org.jboss.jandex.Index;
 import org.jboss.jandex.Indexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.event.Level;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.spi.AppenderAttachable;
 
 /**
  * Helper methods.
@@ -57,8 +60,21 @@ public final class DevSupWizUtils {
     /** Key used for the MDC 'task' value. */
     public static final String MDC_TASK_KEY = "task";
 
+    /** Key used for the MDC 'session' value. */
+    public static final String MDC_SESSION_KEY = "session";
+
+    /** Marks a log message as intermediate progress state of a command. */
+    public static final Marker MARKER_PROGRESS = MarkerFactory
+            .getMarker("PROGRESS");
+
+    /** Marks a log message as the line that terminates progress states. */
+    public static final Marker MARKER_PROGRESS_END = MarkerFactory
+            .getMarker("PROGRESS_END");
+
     private static final Logger LOG = LoggerFactory.getLogger(DevSupWizUtils.class);
 
+    private static List<String> setupTaskClassNames;
+
     private DevSupWizUtils() {
     }
 
@@ -75,7 +91,12 @@ public final class DevSupWizUtils {
      * 
      * @param <T>
      *            Type of the setup task.
+     * 
+     * @deprecated Scans all violations on every call. Create a
+     *             {@link ViolationIndex} once and use
+     *             {@link ViolationIndex#isViolated(String)} instead.
      */
+    @Deprecated
     public static <T extends SetupTask> boolean violated(final Set<ConstraintViolation<T>> violations, final String name) {
         for (ConstraintViolation<T> violation : violations) {
             final Path.Node node = violation.getPropertyPath().iterator().next();
@@ -86,6 +107,26 @@ public final class DevSupWizUtils {
         return false;
     }
 
+    /**
+     * Returns the type of log line for a log message marker.
+     * 
+     * @param marker
+     *            Marker of the log message or <code>null</code>.
+     * 
+     * @return Line type.
+     */
+    public static LogLine.Type lineType(final Marker marker) {
+        if (marker != null) {
+            if (marker.contains(MARKER_PROGRESS)) {
+                return LogLine.Type.PROGRESS;
+            }
+            if (marker.contains(MARKER_PROGRESS_END)) {
+                return LogLine.Type.PROGRESS_END;
+            }
+        }
+        return LogLine.Type.LINE;
+    }
+
     /**
      * Prints the message on the stream.
      * 
@@ -119,10 +160,31 @@ public final class DevSupWizUtils {
     public static <T extends Appender<ILoggingEvent>> T findAppender(final String name) {
         final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
         for (ch.qos.logback.classic.Logger logger : context.getLoggerList()) {
-            for (Iterator<Appender<ILoggingEvent>> index = logger.iteratorForAppenders(); index.hasNext();) {
-                final Appender<ILoggingEvent> appender = index.next();
-                if (name.equals(appender.getName())) {
-                    return (T) appender;
+            final Appender<ILoggingEvent> appender = findAppender(logger, name);
+            if (appender != null) {
+                return (T) appender;
+            }
+        }
+        return null;
+    }
+
+    private static Appender<ILoggingEvent> findAppender(
+            final AppenderAttachable<ILoggingEvent> attachable,
+            final String name) {
+        for (Iterator<Appender<ILoggingEvent>> index = attachable
+                .iteratorForAppenders(); index.hasNext();) {
+            final Appender<ILoggingEvent> appender = index.next();
+            if (name.equals(appender.getName())) {
+                return appender;
+            }
+            // Appenders may be wrapped, for example by an asynchronous one
+            if (appender instanceof AppenderAttachable) {
+                @SuppressWarnings("unchecked")
+                final Appender<ILoggingEvent> found = findAppender(
+                        (AppenderAttachable<ILoggingEvent>) appender, name);
+
+                if (found != null) {
+                    return found;
                 }
             }
         }
@@ -146,21 +208,31 @@ public final class DevSupWizUtils {
     }
 
     /**
-     * Reads the host name (using shell command 'hostname').
+     * Formats a duration for humans.
+     * 
+     * @param millis
+     *            Duration in milliseconds.
+     * 
+     * @return Text like "2.5 s" or "3:05 min".
+     */
+    public static String formatDuration(final long millis) {
+        final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis);
+        if (seconds < 60) {
+            return String.format(Locale.ROOT, "%.1f s", millis / 1000.0);
+        }
+        return String.format(Locale.ROOT, "%d:%02d min", seconds / 60,
+                seconds % 60);
+
+    }
+
+    /**
+     * Reads the host name. Convenience method for
+     * <code>SystemFacts.getInstance().getHostname()</code>.
      * 
      * @return Host name
      */
     public static String getHostname() {
-        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        final ShellCommandExecutor executor = new ShellCommandExecutor("hostname", 5, new HashMap<String, String>(), bos,
-                new LogOutputStream(Level.ERROR));
-        final int result = executor.execute();
-        final String text = new String(bos.toByteArray());
-        if (result == 0) {
-            return text.trim();
-        } else {
-            throw new RuntimeException("Error # " + result + " reading hostname: " + text);
-        }
+        return SystemFacts.getInstance().getHostname();
     }
 
     /**
@@ -194,17 +266,35 @@ public final class DevSupWizUtils {
 
     /**
      * Returns all classes from the classpath (*.jar or *.class) that implement
-     * the {@link SetupTask} interface.
+     * the {@link SetupTask} interface. The classpath is only scanned on the
+     * first call.
+     * 
+     * @return Unmodifiable list of full qualified class names.
+     */
+    public static synchronized List<String> findSetupTasksInClasspath() {
+        if (setupTaskClassNames == null) {
+            setupTaskClassNames = Collections
+                    .unmodifiableList(scanSetupTasksInClasspath());
+        }
+        return setupTaskClassNames;
+    }
+
+    /**
+     * Scans the classpath (*.jar or *.class) for classes that implement the
+     * {@link SetupTask} interface. Other than
+     * {@link #findSetupTasksInClasspath()} the result is not cached.
      * 
      * @return List of full qualified class names.
      */
-    public static List<String> findSetupTasksInClasspath() {
+    public static List<String> scanSetupTasksInClasspath() {
         final List<File> knownFiles = new ArrayList<File>();
         final Indexer indexer = new Indexer();
-        JandexUtils.indexClasspath((URLClassLoader) DevSupWizFxUtils.class.getClassLoader(), indexer, knownFiles);
+        JandexUtils.indexClasspath(
+                (URLClassLoader) DevSupWizFxUtils.class.getClassLoader(),
+                indexer, knownFiles);
+
         final Index index = indexer.complete();
         return implementors(index, SetupTask.class);
-
     }
 
     /**
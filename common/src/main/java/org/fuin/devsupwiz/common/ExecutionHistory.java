@@ -0,0 +1,525 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.fuin.utils4j.Utils4J;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durations of the latest successful executions of tasks, their sub-steps
+ * (see {@link AbstractSetupTask#runStep(String, Runnable)}) and their shell
+ * commands, kept in a file to estimate how long they will take. Durations are
+ * stored per machine profile ({@link SystemFacts#getMachineProfile()}) and
+ * only the durations measured on a machine with the same profile are used.
+ * The file of the default history is set with the system property
+ * {@value #PROPERTY} and defaults to <code>~/.devsupwiz/history.txt</code>.
+ * New durations are only kept in memory until {@link #flush()} is called.
+ */
+public final class ExecutionHistory {
+
+    /** System property with the file of the default history. */
+    public static final String PROPERTY = "devsupwiz.history-file";
+
+    /** Number of durations kept per task, step or command. */
+    public static final int MAX_ENTRIES = 20;
+
+    /**
+     * Number of shell commands kept. The commands used least recently are
+     * removed first.
+     */
+    public static final int MAX_COMMANDS = 1000;
+
+    /** Number of durations required before a timeout is derived from them. */
+    public static final int MIN_TIMEOUT_SAMPLES = 3;
+
+    /** Factor applied to the longest known duration to derive a timeout. */
+    private static final int TIMEOUT_FACTOR = 3;
+
+    /** Lower limit of a derived timeout. */
+    private static final long MIN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ExecutionHistory.class);
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    /**
+     * Prefix of the step names used for shell commands. The rest of the name
+     * is a hash of the command, because the command line may contain
+     * credentials.
+     */
+    static final String COMMAND_STEP_PREFIX = "$ ";
+
+    /** Step name used for the task itself. */
+    private static final String TASK = "";
+
+    private static volatile ExecutionHistory defaultHistory;
+
+    private final File file;
+
+    private final String profile;
+
+    /** Durations in milliseconds, latest used last. */
+    private final Map<Key, Entry> entries;
+
+    /** Number of keys in the entries that belong to a shell command. */
+    private int commands;
+
+    /** Entries were changed since the file was read or written. */
+    private boolean dirty;
+
+    /**
+     * Constructor with file. Reads the file if it exists and uses the profile
+     * of this machine.
+     * 
+     * @param file
+     *            File to read and write the history.
+     */
+    public ExecutionHistory(@NotNull final File file) {
+        this(file, SystemFacts.getInstance().getMachineProfile());
+    }
+
+    /**
+     * Constructor with all data. Reads the file if it exists.
+     * 
+     * @param file
+     *            File to read and write the history.
+     * @param profile
+     *            Machine profile to record and estimate durations for.
+     */
+    public ExecutionHistory(@NotNull final File file,
+            @NotEmpty final String profile) {
+        super();
+        this.file = file;
+        this.profile = clean(profile);
+        this.entries = new LinkedHashMap<>();
+        load();
+    }
+
+    /**
+     * Returns the default history.
+     * 
+     * @return History shared by the wizard and the plan.
+     */
+    public static ExecutionHistory getDefault() {
+        ExecutionHistory history = defaultHistory;
+        if (history == null) {
+            synchronized (ExecutionHistory.class) {
+                history = defaultHistory;
+                if (history == null) {
+                    final String name = System.getProperty(PROPERTY);
+                    history = new ExecutionHistory(name == null
+                            ? new File(new File(Utils4J.getUserHomeDir(),
+                                    ".devsupwiz"), "history.txt")
+                            : new File(name));
+                    defaultHistory = history;
+                }
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns the machine profile.
+     * 
+     * @return Profile the durations are recorded for.
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * Adds the duration of a successful execution of a task.
+     * 
+     * @param task
+     *            Executed task.
+     * @param millis
+     *            Duration of {@link SetupTask#execute()} in milliseconds.
+     */
+    public void record(@NotNull final SetupTask task, final long millis) {
+        record(task.getTypeId(), task.getType(), TASK, millis);
+    }
+
+    /**
+     * Adds the duration of a successful execution of a sub-step of a task.
+     * 
+     * @param typeId
+     *            Type ID of the task.
+     * @param type
+     *            Type of the task or <code>null</code> if unknown.
+     * @param step
+     *            Name of the step or an empty string for the task itself.
+     * @param millis
+     *            Duration in milliseconds.
+     */
+    public void record(@NotEmpty final String typeId,
+            @Nullable final String type, @NotNull final String step,
+            final long millis) {
+        synchronized (entries) {
+            final Key key = new Key(profile, clean(typeId), clean(step));
+            // Re-insert the entry, so the latest used entries are last
+            Entry entry = entries.remove(key);
+            if (entry == null) {
+                entry = new Entry(type == null ? "" : clean(type));
+                if (key.isCommand()) {
+                    commands++;
+                }
+            }
+            entries.put(key, entry);
+            entry.durations.addLast(millis);
+            while (entry.durations.size() > MAX_ENTRIES) {
+                entry.durations.removeFirst();
+            }
+            removeOldCommands();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Saves the history if durations were added since it was read or saved
+     * the last time. Errors writing the file are only logged.
+     */
+    public void flush() {
+        synchronized (entries) {
+            if (!dirty) {
+                return;
+            }
+            try {
+                save();
+                dirty = false;
+            } catch (final IOException ex) {
+                LOG.warn("Failed to save execution history: " + file, ex);
+            }
+        }
+    }
+
+    private void removeOldCommands() {
+        final Iterator<Key> it = entries.keySet().iterator();
+        while (commands > MAX_COMMANDS && it.hasNext()) {
+            if (it.next().isCommand()) {
+                it.remove();
+                commands--;
+            }
+        }
+    }
+
+    /**
+     * Estimates the duration of a task. Uses the median of the task's previous
+     * executions or, if the task was never executed, the median of all
+     * executions of tasks with the same type.
+     * 
+     * @param task
+     *            Task to estimate.
+     * 
+     * @return Duration in milliseconds or <code>null</code> if no task of that
+     *         type was ever executed.
+     */
+    @Nullable
+    public Long estimateMillis(@NotNull final SetupTask task) {
+        return estimateMillis(task.getTypeId(), task.getType(), TASK);
+    }
+
+    /**
+     * Estimates the duration of a sub-step of a task. Uses the median of the
+     * step's previous executions or, if the step was never executed, the
+     * median of all executions of the same step of tasks with the same type.
+     * 
+     * @param typeId
+     *            Type ID of the task.
+     * @param type
+     *            Type of the task or <code>null</code> if only executions of
+     *            the same task should be used.
+     * @param step
+     *            Name of the step or an empty string for the task itself.
+     * 
+     * @return Duration in milliseconds or <code>null</code> if there is no
+     *         history.
+     */
+    @Nullable
+    public Long estimateMillis(@NotEmpty final String typeId,
+            @Nullable final String type, @NotNull final String step) {
+        synchronized (entries) {
+            final Entry entry = entries
+                    .get(new Key(profile, clean(typeId), clean(step)));
+            if (entry != null && !entry.durations.isEmpty()) {
+                return median(new ArrayList<>(entry.durations));
+            }
+            if (type == null) {
+                return null;
+            }
+            final List<Long> sameType = new ArrayList<>();
+            for (final Map.Entry<Key, Entry> other : entries.entrySet()) {
+                final Key key = other.getKey();
+                if (key.profile.equals(profile) && key.step.equals(clean(step))
+                        && other.getValue().type.equals(clean(type))) {
+                    sameType.addAll(other.getValue().durations);
+                }
+            }
+            if (sameType.isEmpty()) {
+                return null;
+            }
+            return median(sameType);
+        }
+    }
+
+    /**
+     * Estimates how long a task still needs. Sub-steps that were completed by
+     * a previous, interrupted execution are subtracted from the estimate.
+     * 
+     * @param task
+     *            Task to estimate.
+     * 
+     * @return Duration in milliseconds or <code>null</code> if there is no
+     *         history.
+     */
+    @Nullable
+    public Long estimateRemainingMillis(@NotNull final SetupTask task) {
+        final Long millis = estimateMillis(task);
+        if (millis == null || !(task instanceof AbstractSetupTask)) {
+            return millis;
+        }
+        long remaining = millis;
+        for (final String step : ((AbstractSetupTask) task).getCheckpoints()) {
+            final Long stepMillis = estimateMillis(task.getTypeId(),
+                    task.getType(), step);
+            if (stepMillis != null) {
+                remaining = remaining - stepMillis;
+            }
+        }
+        return Math.max(0, remaining);
+    }
+
+    /**
+     * Derives a timeout from the durations of previous executions that is
+     * never shorter than the default. A history of fast executions can so
+     * only extend the timeout chosen by the task's author, but a command that
+     * got slower is never killed before that timeout.
+     * 
+     * @param typeId
+     *            Type ID of the task.
+     * @param step
+     *            Name of the step.
+     * @param defaultMillis
+     *            Timeout to use if there are less than
+     *            {@value #MIN_TIMEOUT_SAMPLES} durations and lower limit of
+     *            the derived timeout.
+     * 
+     * @return Timeout in milliseconds.
+     */
+    public long timeoutMillis(@NotEmpty final String typeId,
+            @NotNull final String step, final long defaultMillis) {
+        return timeoutMillis(typeId, step, defaultMillis, false);
+    }
+
+    /**
+     * Derives a timeout from the durations of previous executions. The timeout
+     * is a multiple of the longest known duration, but at least 30 seconds.
+     * 
+     * @param typeId
+     *            Type ID of the task.
+     * @param step
+     *            Name of the step.
+     * @param defaultMillis
+     *            Timeout to use if there are less than
+     *            {@value #MIN_TIMEOUT_SAMPLES} durations.
+     * @param shorten
+     *            <code>true</code> if the derived timeout may be shorter than
+     *            the default or <code>false</code> if the default is the
+     *            lower limit.
+     * 
+     * @return Timeout in milliseconds.
+     */
+    public long timeoutMillis(@NotEmpty final String typeId,
+            @NotNull final String step, final long defaultMillis,
+            final boolean shorten) {
+        synchronized (entries) {
+            final Entry entry = entries
+                    .get(new Key(profile, clean(typeId), clean(step)));
+            if (entry == null || entry.durations.size() < MIN_TIMEOUT_SAMPLES) {
+                return defaultMillis;
+            }
+            long max = 0;
+            for (final Long millis : entry.durations) {
+                max = Math.max(max, millis);
+            }
+            final long derived = Math.max(MIN_TIMEOUT_MILLIS,
+                    max * TIMEOUT_FACTOR);
+            if (shorten) {
+                return derived;
+            }
+            return Math.max(defaultMillis, derived);
+        }
+    }
+
+    private static long median(final List<Long> values) {
+        final long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String clean(final String field) {
+        return field.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            for (final String line : Files.readAllLines(file.toPath(), UTF8)) {
+                // Profile, type ID, step, type and comma separated durations
+                final String[] fields = line.split("\\t", -1);
+                if (fields.length == 5) {
+                    final Key key = new Key(fields[0], fields[1], fields[2]);
+                    if (entries.put(key, entry(fields[3], fields[4])) == null
+                            && key.isCommand()) {
+                        commands++;
+                    }
+                }
+            }
+        } catch (final IOException | NumberFormatException ex) {
+            LOG.warn("Ignoring invalid execution history: " + file, ex);
+            entries.clear();
+            commands = 0;
+        }
+        removeOldCommands();
+    }
+
+    private static Entry entry(final String type, final String durations) {
+        final Entry entry = new Entry(type);
+        for (final String millis : durations.split(",")) {
+            entry.durations.addLast(Long.parseLong(millis.trim()));
+        }
+        return entry;
+    }
+
+    private void save() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+            final Key key = mapEntry.getKey();
+            final Entry entry = mapEntry.getValue();
+            sb.append(key.profile).append('\t').append(key.typeId)
+                    .append('\t').append(key.step).append('\t')
+                    .append(entry.type).append('\t');
+            boolean first = true;
+            for (final Long millis : entry.durations) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(millis);
+                first = false;
+            }
+            sb.append('\n');
+        }
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), sb.toString().getBytes(UTF8));
+        Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /**
+     * Identifies a task or step on a machine profile.
+     */
+    private static final class Key {
+
+        private final String profile;
+
+        private final String typeId;
+
+        private final String step;
+
+        Key(final String profile, final String typeId, final String step) {
+            super();
+            this.profile = profile;
+            this.typeId = typeId;
+            this.step = step;
+        }
+
+        boolean isCommand() {
+            return step.startsWith(COMMAND_STEP_PREFIX);
+        }
+
+        @Override
+        public int hashCode() {
+            return (profile.hashCode() * 31 + typeId.hashCode()) * 31
+                    + step.hashCode();
+
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return profile.equals(other.profile) && typeId.equals(other.typeId)
+                    && step.equals(other.step);
+        }
+
+    }
+
+    /**
+     * History of a single task or step.
+     */
+    private static final class Entry {
+
+        private final String type;
+
+        private final Deque<Long> durations;
+
+        Entry(final String type) {
+            super();
+            this.type = type;
+            this.durations = new ArrayDeque<>();
+        }
+
+    }
+
+}
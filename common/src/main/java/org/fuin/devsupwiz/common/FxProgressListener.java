@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Passes progress updates to a consumer in the JavaFX application thread.
+ * Updates are coalesced: At most one update is queued at a time and it
+ * delivers the latest progress, so a task reporting thousands of updates per
+ * second does not flood the FX thread.
+ */
+public final class FxProgressListener implements ProgressListener {
+
+    private final Consumer<Progress> consumer;
+
+    private final AtomicReference<Progress> latest;
+
+    /**
+     * Constructor with consumer.
+     * 
+     * @param consumer
+     *            Consumer called in the FX thread.
+     */
+    public FxProgressListener(@NotNull final Consumer<Progress> consumer) {
+        super();
+        this.consumer = consumer;
+        this.latest = new AtomicReference<>();
+    }
+
+    @Override
+    public void progress(@NotNull final Progress progress) {
+        if (latest.getAndSet(progress) == null) {
+            FxQueue.runLater(() -> {
+                final Progress current = latest.getAndSet(null);
+                if (current != null) {
+                    consumer.accept(current);
+                }
+            });
+        }
+    }
+
+}
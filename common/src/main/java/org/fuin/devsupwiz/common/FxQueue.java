@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.NotNull;
+
+import javafx.application.Platform;
+
+/**
+ * Submits work to the JavaFX application thread and keeps track of the number
+ * of runnables that were submitted, but did not run yet.
+ */
+public final class FxQueue {
+
+    private static final AtomicInteger DEPTH = new AtomicInteger();
+
+    private FxQueue() {
+    }
+
+    /**
+     * Runs a runnable later on the JavaFX application thread. Same as
+     * {@link Platform#runLater(Runnable)}, but counts the queued runnables.
+     * 
+     * @param runnable
+     *            Runnable to execute.
+     */
+    public static void runLater(@NotNull final Runnable runnable) {
+        DEPTH.incrementAndGet();
+        try {
+            Platform.runLater(() -> {
+                DEPTH.decrementAndGet();
+                runnable.run();
+            });
+        } catch (final RuntimeException ex) {
+            DEPTH.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of runnables waiting for execution.
+     * 
+     * @return Queue depth.
+     */
+    public static int getDepth() {
+        return DEPTH.get();
+    }
+
+}
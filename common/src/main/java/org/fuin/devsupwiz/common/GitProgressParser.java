@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Parses the progress that git writes to the error output, for example
+ * <code>Receiving objects:  45% (450/1000), 1.20 MiB | 2.40 MiB/s</code>. Git
+ * only writes progress if the error output is a terminal or the
+ * <code>--progress</code> option is used.
+ */
+public final class GitProgressParser implements ProgressParser {
+
+    private static final Pattern PROGRESS = Pattern.compile(
+            "^(?:remote: )?([A-Za-z][A-Za-z ]*):\\s+(\\d+)% "
+                    + "\\((\\d+)/(\\d+)\\)(?:, [\\d.]+ \\S+(?: \\| ([\\d.]+) "
+                    + "(bytes|KiB|MiB|GiB)/s)?)?.*$");
+
+
+    @Override
+    @Nullable
+    public Progress parse(@NotNull final String line) {
+        final Matcher matcher = PROGRESS.matcher(line.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        final double fraction = Integer.parseInt(matcher.group(2)) / 100.0;
+        if (matcher.group(5) == null) {
+            return new Progress(fraction, matcher.group(1));
+        }
+        final double rate = Double.parseDouble(matcher.group(5))
+                * factor(matcher.group(6));
+        return new Progress(fraction, matcher.group(1), rate, Progress.BYTES);
+    }
+
+    private static double factor(final String unit) {
+        switch (unit) {
+        case "KiB":
+            return 1024;
+        case "MiB":
+            return 1024 * 1024;
+        case "GiB":
+            return 1024 * 1024 * 1024;
+        default:
+            return 1;
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram for latencies in nanoseconds. Values are counted in
+ * logarithmic buckets with 16 linear sub-buckets each, so a percentile is
+ * accurate to about 6 percent. Recording a value does not allocate and may be
+ * done from any thread.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder count;
+
+    private final LongAdder sum;
+
+    private final AtomicLong max;
+
+    /**
+     * Constructor with name.
+     * 
+     * @param name
+     *            Name of the histogram.
+     */
+    public LatencyHistogram(final String name) {
+        super();
+        this.name = name;
+        counts = new AtomicLongArray(BUCKETS);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Returns the name.
+     * 
+     * @return Name of the histogram.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a latency.
+     * 
+     * @param nanos
+     *            Latency in nanoseconds. Negative values are counted as zero.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * 
+     * @return Count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded values.
+     * 
+     * @return Sum in nanoseconds.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     * 
+     * @return Maximum in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of all recorded values.
+     * 
+     * @return Mean in nanoseconds or <code>0</code> if nothing was recorded.
+     */
+    public long getMean() {
+        final long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        return getSum() / n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall.
+     * 
+     * @param percent
+     *            Percentile between 0 and 100 (e.g. 99 for the p99).
+     * 
+     * @return Upper bound of the bucket containing the percentile in
+     *         nanoseconds or <code>0</code> if nothing was recorded.
+     */
+    public long getPercentile(final double percent) {
+        long total = 0;
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total = total + snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long target = Math.max(1,
+                (long) Math.ceil(total * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen = seen + snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns a one line summary with count, p50, p90, p99 and max.
+     * 
+     * @return Summary with values in milliseconds.
+     */
+    public String summary() {
+        return String.format(
+                "%s: count=%d, p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, "
+                        + "max=%.3f ms",
+                name, getCount(), millis(getPercentile(50)),
+                millis(getPercentile(90)), millis(getPercentile(99)),
+                millis(getMax()));
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exp = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exp - SUB_BUCKET_BITS))
+                & (SUB_BUCKETS - 1);
+
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exp = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int sub = index % SUB_BUCKETS;
+        final int shift = exp - SUB_BUCKET_BITS;
+        final long lower = ((long) (SUB_BUCKETS + sub)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
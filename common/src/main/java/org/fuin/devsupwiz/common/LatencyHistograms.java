@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Application wide registry of latency histograms.
+ */
+public final class LatencyHistograms {
+
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS =
+            new ConcurrentHashMap<>();
+
+    private LatencyHistograms() {
+    }
+
+    /**
+     * Returns the key for a method.
+     * 
+     * @param clasz
+     *            Class that declares the method.
+     * @param method
+     *            Name of the method.
+     * 
+     * @return Simple class name and method name separated by a dot.
+     */
+    public static String key(@NotNull final Class<?> clasz,
+            @NotNull final String method) {
+
+        return clasz.getSimpleName() + "." + method;
+    }
+
+    /**
+     * Returns a histogram and creates it if it does not exist yet.
+     * 
+     * @param key
+     *            Unique name of the histogram.
+     * 
+     * @return Histogram.
+     */
+    public static LatencyHistogram get(@NotNull final String key) {
+        final LatencyHistogram histogram = HISTOGRAMS.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return HISTOGRAMS.computeIfAbsent(key, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns all histograms sorted by name.
+     * 
+     * @return Snapshot of the currently registered histograms.
+     */
+    public static List<LatencyHistogram> getAll() {
+        final List<LatencyHistogram> list = new ArrayList<>(HISTOGRAMS.values());
+        Collections.sort(list, Comparator.comparing(LatencyHistogram::getName));
+        return list;
+    }
+
+    /**
+     * Returns a report with one summary line per histogram that contains at
+     * least one value.
+     * 
+     * @return Report.
+     */
+    public static String report() {
+        final StringBuilder sb = new StringBuilder();
+        for (final LatencyHistogram histogram : getAll()) {
+            if (histogram.getCount() > 0) {
+                sb.append(histogram.summary()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.exec.ShutdownHookProcessDestroyer;
+import org.apache.commons.exec.environment.EnvironmentUtils;
+
+/**
+ * Runs commands with "/bin/sh" on the local machine.
+ */
+public final class LocalCommandRunner implements CommandRunner {
+
+    @Override
+    public int run(@NotNull final Command command,
+            @NotNull final OutputStream out, @NotNull final OutputStream err) {
+
+
+        try {
+
+            final Map<String, String> envMap = EnvironmentUtils
+                    .getProcEnvironment();
+            envMap.put("DEBIAN_FRONTEND", "noninteractive");
+            envMap.putAll(command.getEnv());
+
+            final CommandLine commandLine = new CommandLine("/bin/sh");
+            commandLine.addArguments(
+                    new String[] { "-c", command.getShellCmd() }, false);
+
+            final DefaultExecutor executor = new DefaultExecutor();
+            executor.setStreamHandler(new PumpStreamHandler(out, err));
+            executor.setWorkingDirectory(command.getWorkingDir());
+            executor.setProcessDestroyer(new ShutdownHookProcessDestroyer());
+            executor.setWatchdog(
+                    new ExecuteWatchdog(command.getTimeoutSeconds() * 1000));
+
+            Metrics.COMMANDS_LAUNCHED.increment();
+            return executor.execute(commandLine, envMap);
+
+        } catch (final IOException ex) {
+            Metrics.COMMANDS_FAILED.increment();
+            throw new RuntimeException(ex);
+        }
+
+    }
+
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.validation.constraints.NotNull;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Incrementally maintained full-text index of log lines. For every token
+ * (sequence of letters or digits, case insensitive) and every level a sorted
+ * list of line identifiers is kept. A search intersects these lists using
+ * binary search, so lookups don't depend on scanning the log. Intermediate
+ * progress states are not indexed. The index only keeps the latest lines
+ * (see {@link #getMaxLines()}): The postings of older lines are evicted, so
+ * the memory used does not grow with the number of lines ever seen. The
+ * postings are kept on the heap, so an index that belongs to a store keeping
+ * all lines (like {@link MappedLogStore}) must be bounded as well and only
+ * finds the latest lines. The class is thread-safe.
+ */
+public final class LogIndex {
+
+    /** Default maximum number of lines for a store that keeps all lines. */
+    public static final int DEFAULT_MAX_LINES = 100000;
+
+    /** Prefix for a query term that restricts the search to a log level. */
+    public static final String LEVEL_PREFIX = "level:";
+
+    private static final int NOT_FOUND = -1;
+
+    private final int maxLines;
+
+    /** Number of lines above the maximum before the postings are trimmed. */
+    private final int slack;
+
+    private final ReadWriteLock lock;
+
+    private final IntList lines;
+
+    private final Map<String, IntList> tokens;
+
+    private final Map<Level, IntList> levels;
+
+    /**
+     * Constructor with maximum number of lines.
+     * 
+     * @param maxLines
+     *            Maximum number of (not progress) lines to keep in the index.
+     */
+    public LogIndex(final int maxLines) {
+        super();
+        if (maxLines < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of lines must be greater than zero, but was: "
+                            + maxLines);
+        }
+        this.maxLines = maxLines;
+        this.slack = Math.max(1, maxLines / 4);
+        lock = new ReentrantReadWriteLock();
+        lines = new IntList();
+        tokens = new HashMap<>();
+        levels = new HashMap<>();
+    }
+
+    /**
+     * Returns the maximum number of lines.
+     * 
+     * @return Maximum number of lines to keep.
+     */
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    /**
+     * Adds a line to the index. Lines must be added in the order of their
+     * identifiers. If the maximum number of lines is exceeded, the oldest
+     * lines are evicted.
+     * 
+     * @param line
+     *            Line to add.
+     */
+    public void add(@NotNull final LogLine line) {
+        if (line.isProgress()) {
+            return;
+        }
+        final Set<String> lineTokens = tokenize(line.getText());
+        final int id = line.getId();
+        lock.writeLock().lock();
+        try {
+            for (final String token : lineTokens) {
+                postings(tokens, token).add(id);
+            }
+            postings(levels, line.getLevel()).add(id);
+            lines.add(id);
+            // Trimming visits all postings, so it's only done now and then
+            if (lines.size() - maxLines > slack) {
+                evictBefore(lines.get(lines.size() - maxLines));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evictBefore(final int id) {
+        lines.removeBefore(id);
+        evictBefore(tokens, id);
+        evictBefore(levels, id);
+    }
+
+    private static <K> void evictBefore(final Map<K, IntList> map,
+            final int id) {
+        final Iterator<IntList> it = map.values().iterator();
+        while (it.hasNext()) {
+            final IntList list = it.next();
+            list.removeBefore(id);
+            if (list.size() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct tokens.
+     * 
+     * @return Number of tokens in the index.
+     */
+    public int getTokenCount() {
+        lock.readLock().lock();
+        try {
+            return tokens.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the first line after a given one that contains all tokens of the
+     * query. A query term like "level:error" restricts the result to the
+     * given log level.
+     * 
+     * @param query
+     *            Words to search for.
+     * @param afterId
+     *            Line identifier to start after. Use <code>-1</code> to start
+     *            at the beginning.
+     * 
+     * @return Identifier of the matching line or <code>-1</code> if no line
+     *         was found.
+     */
+    public int next(@NotNull final String query, final int afterId) {
+        lock.readLock().lock();
+        try {
+            final IntList[] lists = lists(query);
+            if (lists == null) {
+                return NOT_FOUND;
+            }
+            int candidate = afterId + 1;
+            int agreed = 0;
+            int i = 0;
+            while (agreed < lists.length) {
+                final int id = lists[i].ceiling(candidate);
+                if (id == NOT_FOUND) {
+                    return NOT_FOUND;
+                }
+                if (id == candidate) {
+                    agreed++;
+                } else {
+                    candidate = id;
+                    agreed = 1;
+                }
+                i = (i + 1) % lists.length;
+            }
+            return candidate;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IntList[] lists(final String query) {
+        final List<IntList> lists = new ArrayList<>();
+        for (final String term : query.trim().toLowerCase(Locale.ROOT)
+                .split("\\s+")) {
+            if (term.startsWith(LEVEL_PREFIX)) {
+                final String name = term.substring(LEVEL_PREFIX.length());
+                final IntList list = levels
+                        .get(Level.toLevel(name.toUpperCase(Locale.ROOT), null));
+                if (list == null) {
+                    return null;
+                }
+                lists.add(list);
+            } else {
+                for (final String token : tokenize(term)) {
+                    final IntList list = tokens.get(token);
+                    if (list == null) {
+                        return null;
+                    }
+                    lists.add(list);
+                }
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        return lists.toArray(new IntList[lists.size()]);
+    }
+
+    private static <K> IntList postings(final Map<K, IntList> map,
+            final K key) {
+        IntList list = map.get(key);
+        if (list == null) {
+            list = new IntList();
+            map.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * Splits a text into lower case tokens that consist of letters and digits.
+     * 
+     * @param text
+     *            Text to split.
+     * 
+     * @return Distinct tokens in the order of their first occurrence.
+     */
+    static Set<String> tokenize(final String text) {
+        final Set<String> result = new LinkedHashSet<>();
+        final int len = text.length();
+        int start = -1;
+        for (int i = 0; i <= len; i++) {
+            final boolean tokenChar = i < len
+                    && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * List of ascending int values that grows at the end and shrinks at the
+     * beginning.
+     */
+    private static final class IntList {
+
+        private int[] values;
+
+        private int head;
+
+        private int tail;
+
+        IntList() {
+            values = new int[4];
+        }
+
+        int size() {
+            return tail - head;
+        }
+
+        int get(final int index) {
+            return values[head + index];
+        }
+
+        void add(final int value) {
+            if (tail > head && values[tail - 1] == value) {
+                return;
+            }
+            if (tail == values.length) {
+                if (head >= values.length / 2) {
+                    // Reuse the space of removed values
+                    System.arraycopy(values, head, values, 0, size());
+                } else {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                tail = tail - head;
+                head = 0;
+            }
+            values[tail++] = value;
+        }
+
+        void removeBefore(final int value) {
+            final int pos = Arrays.binarySearch(values, head, tail, value);
+            head = pos >= 0 ? pos : -(pos + 1);
+            if (head == tail) {
+                head = 0;
+                tail = 0;
+            }
+            if (values.length > 4 && size() < values.length / 4) {
+                values = Arrays.copyOfRange(values, head,
+                        head + Math.max(4, size() * 2));
+                tail = tail - head;
+                head = 0;
+            }
+        }
+
+        int ceiling(final int value) {
+            final int pos = Arrays.binarySearch(values, head, tail, value);
+            if (pos >= 0) {
+                return values[pos];
+            }
+            final int insert = -(pos + 1);
+            if (insert < tail) {
+                return values[insert];
+            }
+            return NOT_FOUND;
+        }
+
+    }
+
+}
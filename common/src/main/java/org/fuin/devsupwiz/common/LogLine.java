@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * A single line of log output that is displayed in the UI.
+ */
+public final class LogLine {
+
+    /**
+     * Type of line.
+     */
+    public enum Type {
+
+        /** Regular line. */
+        LINE,
+
+        /** Intermediate progress state that is replaced by the next one. */
+        PROGRESS,
+
+        /** Line that replaces and terminates a sequence of progress states. */
+        PROGRESS_END;
+
+    }
+
+    private final int id;
+
+    private final Level level;
+
+    private final String task;
+
+    private final String text;
+
+    private final Type type;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param id
+     *            Sequence number of the line. Lines added later have a higher
+     *            number.
+     * @param level
+     *            Level of the log event that created the line.
+     * @param task
+     *            Type and identifier of the task that created the line or
+     *            <code>null</code> if the line does not belong to a task.
+     * @param text
+     *            Text without line feed.
+     * @param type
+     *            Type of line.
+     */
+    public LogLine(final int id, @NotNull final Level level,
+            @Nullable final String task, @NotNull final String text,
+            @NotNull final Type type) {
+        super();
+        this.id = id;
+        this.level = level;
+        this.task = task;
+        this.text = text;
+        this.type = type;
+    }
+
+    /**
+     * Returns the sequence number of the line.
+     * 
+     * @return Unique number that is higher for lines added later.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the level of the log event.
+     * 
+     * @return Level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the task that created the line.
+     * 
+     * @return Value of {@link SetupTask#getTypeId()} or <code>null</code> if
+     *         the line does not belong to a task.
+     */
+    @Nullable
+    public String getTask() {
+        return task;
+    }
+
+    /**
+     * Returns the text.
+     * 
+     * @return Text without line feed.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the type of line.
+     * 
+     * @return Type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Determines if this is an intermediate progress state.
+     * 
+     * @return <code>true</code> if the line will be replaced by the next
+     *         progress state.
+     */
+    public boolean isProgress() {
+        return type == Type.PROGRESS;
+    }
+
+    /**
+     * Determines if this line replaces a previous progress state.
+     * 
+     * @param previous
+     *            Line that was added before this one.
+     * 
+     * @return <code>true</code> if the previous line is a progress state that
+     *         should be replaced with this line.
+     */
+    public boolean replaces(@NotNull final LogLine previous) {
+        return previous.isProgress() && type != Type.LINE
+                && Objects.equals(task, previous.task);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
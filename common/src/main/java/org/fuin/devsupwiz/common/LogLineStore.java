@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.validation.constraints.NotNull;
+
+import javafx.collections.ObservableList;
+
+/**
+ * Store for log lines that are displayed by a {@link LogView}.
+ */
+public interface LogLineStore {
+
+    /**
+     * Adds a line. May be called from any thread.
+     * 
+     * @param line
+     *            Line to add.
+     */
+    public void add(@NotNull LogLine line);
+
+    /**
+     * Returns the lines. The list must only be used in the JavaFX application
+     * thread.
+     * 
+     * @return Observable list of lines.
+     */
+    public ObservableList<LogLine> getLines();
+
+    /**
+     * Returns the maximum number of lines the store keeps. Older lines are
+     * dropped. The default implementation returns {@link Integer#MAX_VALUE}
+     * for stores that keep all lines.
+     * 
+     * @return Maximum number of lines.
+     */
+    public default int getMaxLines() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Writes all lines of the store to a writer. Intermediate progress states
+     * may be omitted. Should not be called in the JavaFX application thread
+     * as it may take some time.
+     * 
+     * @param writer
+     *            Writer to use.
+     * 
+     * @throws IOException
+     *             Error writing the lines.
+     */
+    public void export(@NotNull Writer writer) throws IOException;
+
+}
@@ -17,68 +17,160 @@
  */
 package org.fuin.devsupwiz.common;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
 import org.slf4j.event.Level;
 
 /**
  * Caches all bytes until a line feed and writes then a text line to the log.
+ * Progress states (lines overwritten using a carriage return) are logged with
+ * the {@link DevSupWizUtils#MARKER_PROGRESS} marker and the line terminating
+ * them with the {@link DevSupWizUtils#MARKER_PROGRESS_END} marker. The
+ * {@link DevSupWizUtils#MDC_TASK_KEY} and {@link DevSupWizUtils#MDC_SESSION_KEY}
+ * MDC values of the thread that created the stream are also used for the
+ * (stream pumping) thread that writes to it. If a {@link ProgressParser} is
+ * set, the lines it recognizes are reported to the {@link ProgressListener}
+ * of the thread that created the stream.
  */
-public final class LogOutputStream extends OutputStream {
+public final class LogOutputStream extends AbstractLineOutputStream {
 
     private static final Logger LOG = LoggerFactory
             .getLogger("org.fuin.devsupwiz.tasks");
 
-    private StringBuilder line;
+    private static final Charset UTF8 = Charset.forName("utf-8");
 
     private final Level level;
 
+    private final String task;
+
+    private final String session;
+
+    private final ProgressParser parser;
+
+    private final ProgressListener listener;
+
     /**
-     * Constructor wih all data.
+     * Constructor with level and UTF-8 charset.
      * 
      * @param level
      *            Level to use for writing log messages.
      */
     public LogOutputStream(final Level level) {
-        super();
-        this.line = new StringBuilder();
+        this(level, UTF8);
+    }
+
+    /**
+     * Constructor wih all data.
+     * 
+     * @param level
+     *            Level to use for writing log messages.
+     * @param charset
+     *            Charset used to decode the bytes.
+     */
+    public LogOutputStream(final Level level, final Charset charset) {
+        this(level, charset, null);
+    }
+
+    /**
+     * Constructor with level, progress parser and UTF-8 charset.
+     * 
+     * @param level
+     *            Level to use for writing log messages.
+     * @param parser
+     *            Parser for the progress of the command.
+     */
+    public LogOutputStream(final Level level, final ProgressParser parser) {
+        this(level, UTF8, parser);
+    }
+
+    /**
+     * Constructor wih all data.
+     * 
+     * @param level
+     *            Level to use for writing log messages.
+     * @param charset
+     *            Charset used to decode the bytes.
+     * @param parser
+     *            Parser for the progress of the command or <code>null</code>.
+     */
+    public LogOutputStream(final Level level, final Charset charset,
+            final ProgressParser parser) {
+        super(charset);
         this.level = level;
+        this.task = MDC.get(DevSupWizUtils.MDC_TASK_KEY);
+        this.session = MDC.get(DevSupWizUtils.MDC_SESSION_KEY);
+        this.parser = parser;
+        this.listener = ProgressReporter.current();
+    }
+
+    @Override
+    protected void writeLine(final String line) {
+        parse(line);
+        log(null, line);
+    }
+
+    @Override
+    protected void writeProgress(final String line) {
+        parse(line);
+        log(DevSupWizUtils.MARKER_PROGRESS, line);
+    }
+
+    private void parse(final String line) {
+        if (parser != null) {
+            final Progress progress = parser.parse(line);
+            if (progress != null) {
+                listener.progress(progress);
+            }
+        }
     }
 
     @Override
-    public void write(final int b) throws IOException {
-        final char ch = (char) b;
-        line.append(ch);
-        if (ch == '\n') {
-            writeLine();
+    protected void writeProgressEnd(final String line) {
+        parse(line);
+        log(DevSupWizUtils.MARKER_PROGRESS_END, line);
+    }
+
+    private void log(final Marker marker, final String line) {
+        final boolean putTask = put(DevSupWizUtils.MDC_TASK_KEY, task);
+        final boolean putSession = put(DevSupWizUtils.MDC_SESSION_KEY, session);
+        try {
+            logMessage(marker, line.trim());
+        } finally {
+            if (putTask) {
+                MDC.remove(DevSupWizUtils.MDC_TASK_KEY);
+            }
+            if (putSession) {
+                MDC.remove(DevSupWizUtils.MDC_SESSION_KEY);
+            }
         }
     }
 
-    private void writeLine() {
-        final String msg = line.toString().trim();
+    private static boolean put(final String key, final String value) {
+        if (value == null || MDC.get(key) != null) {
+            return false;
+        }
+        MDC.put(key, value);
+        return true;
+    }
+
+    private void logMessage(final Marker marker, final String msg) {
         if (level == Level.TRACE) {
-            LOG.trace(msg);
+            LOG.trace(marker, msg);
         } else if (level == Level.DEBUG) {
-            LOG.debug(msg);
+            LOG.debug(marker, msg);
         } else if (level == Level.INFO) {
-            LOG.info(msg);
+            LOG.info(marker, msg);
         } else if (level == Level.WARN) {
-            LOG.warn(msg);
+            LOG.warn(marker, msg);
         } else if (level == Level.ERROR) {
-            LOG.error(msg);
+            LOG.error(marker, msg);
         } else {
             throw new IllegalStateException("Unknown log level: " + level);
         }
-        line = new StringBuilder();
-    }
-
-    @Override
-    public void close() throws IOException {
-        writeLine();
-        super.close();
     }
 
 }
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Log lines partitioned by task. Every line is added to the partition with all
+ * lines and - if it belongs to a task - to the partition of that task. Task
+ * partitions are bounded and all partitions contain only data, so partitions
+ * that are not displayed don't hold any scene graph nodes. Every partition has
+ * a search index that keeps as many lines as the partition itself, but never
+ * more than a given maximum. The index of a partition that keeps all lines
+ * (like {@link MappedLogStore}) so only covers the latest lines.
+ */
+public final class LogPartitions {
+
+    private final int maxLinesPerTask;
+
+    private final LogLineStore all;
+
+    private final ConcurrentMap<String, LogLineStore> tasks;
+
+    private final LogIndex index;
+
+    private final ConcurrentMap<String, LogIndex> taskIndexes;
+
+    private final AtomicInteger nextId;
+
+    /**
+     * Constructor with bounded partitions only.
+     * 
+     * @param maxLines
+     *            Maximum number of lines in the partition with all lines.
+     * @param maxLinesPerTask
+     *            Maximum number of lines in a task partition.
+     */
+    public LogPartitions(final int maxLines, final int maxLinesPerTask) {
+        this(new BoundedLogLineStore(maxLines), maxLinesPerTask);
+    }
+
+    /**
+     * Constructor with store for all lines. The search index of that store
+     * keeps at most {@link LogIndex#DEFAULT_MAX_LINES} lines.
+     * 
+     * @param all
+     *            Store used for the partition with all lines.
+     * @param maxLinesPerTask
+     *            Maximum number of lines in a task partition.
+     */
+    public LogPartitions(@NotNull final LogLineStore all,
+            final int maxLinesPerTask) {
+        this(all, maxLinesPerTask, LogIndex.DEFAULT_MAX_LINES);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param all
+     *            Store used for the partition with all lines.
+     * @param maxLinesPerTask
+     *            Maximum number of lines in a task partition.
+     * @param maxIndexedLines
+     *            Maximum number of lines in the search index of the partition
+     *            with all lines. The index never keeps more lines than the
+     *            store.
+     */
+    public LogPartitions(@NotNull final LogLineStore all,
+            final int maxLinesPerTask, final int maxIndexedLines) {
+        super();
+        this.maxLinesPerTask = maxLinesPerTask;
+        this.all = all;
+        this.tasks = new ConcurrentHashMap<>();
+        this.index = new LogIndex(Math.min(all.getMaxLines(), maxIndexedLines));
+        this.taskIndexes = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Returns the partition with the lines of all tasks.
+     * 
+     * @return Line store.
+     */
+    public LogLineStore getAll() {
+        return all;
+    }
+
+    /**
+     * Returns the search index of the partition with the lines of all tasks.
+     * 
+     * @return Index.
+     */
+    public LogIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the search index of the partition for a task.
+     * 
+     * @param task
+     *            Value of {@link SetupTask#getTypeId()}.
+     * 
+     * @return Index.
+     */
+    public LogIndex getIndex(@NotNull final String task) {
+        return taskIndexes.computeIfAbsent(task,
+                (key) -> new LogIndex(maxLinesPerTask));
+    }
+
+    /**
+     * Returns the partition for a task. An empty partition is created if no
+     * line was added for the task yet.
+     * 
+     * @param task
+     *            Value of {@link SetupTask#getTypeId()}.
+     * 
+     * @return Line store.
+     */
+    public LogLineStore getTask(@NotNull final String task) {
+        return tasks.computeIfAbsent(task,
+                (key) -> new BoundedLogLineStore(maxLinesPerTask));
+    }
+
+    /**
+     * Creates a new line and adds it to all partitions it belongs to. May be
+     * called from any thread.
+     * 
+     * @param level
+     *            Level of the log event that created the line.
+     * @param task
+     *            Type and identifier of the task that created the line or
+     *            <code>null</code> if the line does not belong to a task.
+     * @param text
+     *            Text without line feed.
+     * @param type
+     *            Type of line.
+     * 
+     * @return New line.
+     */
+    public LogLine add(@NotNull final Level level, @Nullable final String task,
+            @NotNull final String text, @NotNull final LogLine.Type type) {
+        final LogLine line = new LogLine(nextId.getAndIncrement(), level,
+                emptyToNull(task), text, type);
+        index.add(line);
+        all.add(line);
+        if (line.getTask() != null) {
+            getIndex(line.getTask()).add(line);
+            getTask(line.getTask()).add(line);
+        }
+        Metrics.LOG_LINES.increment();
+        return line;
+    }
+
+    private static String emptyToNull(final String str) {
+        if (str == null || str.isEmpty()) {
+            return null;
+        }
+        return str;
+    }
+
+}
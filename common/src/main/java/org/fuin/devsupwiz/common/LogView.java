@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import ch.qos.logback.classic.Level;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+/**
+ * Virtualized view for log lines. Only the cells for the visible rows are
+ * created, independent of the number of lines in the underlying list. The view
+ * scrolls to the last line when new lines are added, unless a line is
+ * selected.
+ */
+public final class LogView extends ListView<LogLine> {
+
+    private static final Font FONT = Font.font("MONOSPACED");
+
+    private final ListChangeListener<LogLine> scrollToEnd;
+
+    /**
+     * Default constructor.
+     */
+    public LogView() {
+        super();
+        getStyleClass().add("log-view");
+        setCellFactory((view) -> new LogLineCell());
+        scrollToEnd = (change) -> {
+            final ObservableList<? extends LogLine> list = change.getList();
+            if (!list.isEmpty() && getSelectionModel().isEmpty()) {
+                scrollTo(list.size() - 1);
+            }
+        };
+        itemsProperty().addListener(
+                (ChangeListener<ObservableList<LogLine>>) (observable,
+                        oldItems, newItems) -> {
+                    if (oldItems != null) {
+                        oldItems.removeListener(scrollToEnd);
+                    }
+                    if (newItems != null) {
+                        newItems.addListener(scrollToEnd);
+                        if (!newItems.isEmpty()) {
+                            scrollTo(newItems.size() - 1);
+                        }
+                    }
+                });
+        getItems().addListener(scrollToEnd);
+    }
+
+    /**
+     * Returns the identifier of the first line in the view.
+     * 
+     * @return Line identifier or <code>-1</code> if the view is empty.
+     */
+    public int getFirstLineId() {
+        final ObservableList<LogLine> items = getItems();
+        if (items == null || items.isEmpty()) {
+            return -1;
+        }
+        return items.get(0).getId();
+    }
+
+    /**
+     * Selects a line and scrolls to it.
+     * 
+     * @param id
+     *            Identifier of the line to select.
+     * 
+     * @return <code>true</code> if the line was found and selected.
+     */
+    public boolean selectLine(final int id) {
+        final ObservableList<LogLine> items = getItems();
+        if (items == null) {
+            return false;
+        }
+        // Lines are ordered by their identifier
+        int low = 0;
+        int high = items.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midId = items.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                getSelectionModel().clearAndSelect(mid);
+                scrollTo(mid);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Color color(final Level level) {
+        if (level == Level.WARN) {
+            return Color.DARKORANGE;
+        }
+        if (level == Level.ERROR) {
+            return Color.RED;
+        }
+        return Color.BLACK;
+    }
+
+    /**
+     * Displays a single log line using a color based on the log level.
+     */
+    private static final class LogLineCell extends ListCell<LogLine> {
+
+        LogLineCell() {
+            super();
+            setFont(FONT);
+        }
+
+        @Override
+        protected void updateItem(final LogLine line, final boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null) {
+                setText(null);
+            } else {
+                setText(line.getText());
+                setTextFill(color(line.getLevel()));
+            }
+        }
+
+    }
+
+}
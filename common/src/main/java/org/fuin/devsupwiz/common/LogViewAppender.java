@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+
+/**
+ * Appends log events to bounded log partitions (one for all lines and one per
+ * task) that are displayed by a {@link LogView}. The task is taken from the
+ * {@link DevSupWizUtils#MDC_TASK_KEY} MDC value. If a store directory is
+ * set, the partition with all lines is kept completely in a memory mapped
+ * {@link MappedLogStore} instead of a bounded one. The files of the store are
+ * deleted when the appender stops, unless it is configured to keep the stores
+ * of a number of runs.
+ * 
+ * @param <E>
+ *            Event type.
+ */
+public class LogViewAppender<E> extends OutputStreamAppender<E> {
+
+    private int maxLines;
+
+    private int maxLinesPerTask;
+
+    private String storeDirectory;
+
+    private int maxIndexedLines;
+
+    private int keepStores;
+
+    private MappedLogStore mappedStore;
+
+    private LogPartitions partitions;
+
+    private LogViewOutputStream targetStream;
+
+    /**
+     * Default constructor.
+     */
+    public LogViewAppender() {
+        super();
+        maxLines = BoundedLogLineStore.DEFAULT_MAX_LINES;
+        maxLinesPerTask = BoundedLogLineStore.DEFAULT_MAX_LINES;
+        maxIndexedLines = LogIndex.DEFAULT_MAX_LINES;
+    }
+
+    /**
+     * Returns the maximum number of lines to keep for all tasks together.
+     * 
+     * @return Maximum number of lines.
+     */
+    public final int getMaxLines() {
+        return maxLines;
+    }
+
+    /**
+     * Sets the maximum number of lines to keep for all tasks together. Has no
+     * effect after the appender was started.
+     * 
+     * @param maxLines
+     *            Maximum number of lines.
+     */
+    public final void setMaxLines(final int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    /**
+     * Returns the maximum number of lines to keep per task.
+     * 
+     * @return Maximum number of lines.
+     */
+    public final int getMaxLinesPerTask() {
+        return maxLinesPerTask;
+    }
+
+    /**
+     * Sets the maximum number of lines to keep per task. Has no effect after
+     * the appender was started.
+     * 
+     * @param maxLinesPerTask
+     *            Maximum number of lines.
+     */
+    public final void setMaxLinesPerTask(final int maxLinesPerTask) {
+        this.maxLinesPerTask = maxLinesPerTask;
+    }
+
+    /**
+     * Returns the directory for the memory mapped store that keeps all lines.
+     * 
+     * @return Directory or <code>null</code> if only a bounded number of lines
+     *         is kept.
+     */
+    public final String getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    /**
+     * Sets the directory for the memory mapped store that keeps all lines. Has
+     * no effect after the appender was started.
+     * 
+     * @param storeDirectory
+     *            Directory or <code>null</code> to keep only a bounded number
+     *            of lines.
+     */
+    public final void setStoreDirectory(final String storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    /**
+     * Returns the maximum number of lines of all tasks that can be searched.
+     * 
+     * @return Maximum number of lines in the search index.
+     */
+    public final int getMaxIndexedLines() {
+        return maxIndexedLines;
+    }
+
+    /**
+     * Sets the maximum number of lines of all tasks that can be searched. The
+     * search index is kept on the heap, so it must be bounded even if the
+     * store directory is set and all lines are kept. Has no effect after the
+     * appender was started.
+     * 
+     * @param maxIndexedLines
+     *            Maximum number of lines in the search index.
+     */
+    public final void setMaxIndexedLines(final int maxIndexedLines) {
+        this.maxIndexedLines = maxIndexedLines;
+    }
+
+    /**
+     * Returns the number of stores kept in the store directory.
+     * 
+     * @return Number of stores of the latest runs (including the current
+     *         one) that are kept or <code>0</code> if the store is deleted
+     *         when the appender stops.
+     */
+    public final int getKeepStores() {
+        return keepStores;
+    }
+
+    /**
+     * Sets the number of stores kept in the store directory. Older stores are
+     * deleted when the appender starts. Has no effect after the appender was
+     * started.
+     * 
+     * @param keepStores
+     *            Number of stores of the latest runs (including the current
+     *            one) to keep or <code>0</code> to delete the store when the
+     *            appender stops.
+     */
+    public final void setKeepStores(final int keepStores) {
+        this.keepStores = keepStores;
+    }
+
+    /**
+     * Returns the partitions that contain the log lines.
+     * 
+     * @return Partitions or <code>null</code> if the appender was not started
+     *         yet.
+     */
+    public final LogPartitions getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public void start() {
+        partitions = new LogPartitions(createAllStore(), maxLinesPerTask,
+                maxIndexedLines);
+        targetStream = new LogViewOutputStream(partitions, Level.INFO,
+                encoderCharset());
+        setOutputStream(targetStream);
+        super.start();
+    }
+
+    private LogLineStore createAllStore() {
+        if (storeDirectory != null && !storeDirectory.trim().isEmpty()) {
+            final File dir = new File(storeDirectory);
+            // Also removes stores left behind by runs that didn't stop cleanly
+            final List<File> failed = MappedLogStore.deleteOldStores(dir,
+                    Math.max(0, keepStores - 1));
+            if (!failed.isEmpty()) {
+                addWarn("Failed to delete old log stores: " + failed);
+            }
+            try {
+                mappedStore = MappedLogStore.create(dir);
+                return mappedStore;
+            } catch (final IOException ex) {
+                addError("Failed to create log store in '" + storeDirectory
+                        + "' - Keeping only " + maxLines + " lines", ex);
+            }
+        }
+        return new BoundedLogLineStore(maxLines);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (mappedStore != null) {
+            try {
+                if (keepStores > 0) {
+                    mappedStore.close();
+                } else {
+                    mappedStore.delete();
+                }
+            } catch (final IOException ex) {
+                addError("Failed to close log store", ex);
+            }
+            mappedStore = null;
+        }
+    }
+
+    private Charset encoderCharset() {
+        if (getEncoder() instanceof LayoutWrappingEncoder) {
+            final Charset charset = ((LayoutWrappingEncoder<E>) getEncoder())
+                    .getCharset();
+            if (charset != null) {
+                return charset;
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    @Override
+    protected void subAppend(final E event) {
+        if (event instanceof ILoggingEvent) {
+            final ILoggingEvent ev = (ILoggingEvent) event;
+            targetStream.setLevel(ev.getLevel());
+            targetStream.setTask(
+                    ev.getMDCPropertyMap().get(DevSupWizUtils.MDC_TASK_KEY));
+            targetStream.setType(DevSupWizUtils.lineType(ev.getMarker()));
+        }
+        super.subAppend(event);
+    }
+
+}
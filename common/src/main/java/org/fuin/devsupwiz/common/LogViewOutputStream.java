@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.nio.charset.Charset;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Caches all bytes until a line feed and writes then a text line to the log
+ * partitions.
+ */
+public final class LogViewOutputStream extends AbstractLineOutputStream {
+
+    private Level level;
+
+    private String task;
+
+    private LogLine.Type type;
+
+    private final LogPartitions partitions;
+
+    /**
+     * Constructor with default charset.
+     * 
+     * @param partitions
+     *            Partitions to write to.
+     * @param level
+     *            Level to use.
+     */
+    public LogViewOutputStream(final LogPartitions partitions,
+            final Level level) {
+        this(partitions, level, Charset.defaultCharset());
+    }
+
+    /**
+     * Constructor wih all data.
+     * 
+     * @param partitions
+     *            Partitions to write to.
+     * @param level
+     *            Level to use.
+     * @param charset
+     *            Charset used to decode the bytes.
+     */
+    public LogViewOutputStream(final LogPartitions partitions,
+            final Level level, final Charset charset) {
+        super(charset);
+        this.partitions = partitions;
+        this.level = level;
+        this.type = LogLine.Type.LINE;
+    }
+
+    /**
+     * Sets the level for the next write.
+     * 
+     * @param level
+     *            Level to use.
+     */
+    public void setLevel(final Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the current level.
+     * 
+     * @return Level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the task for the next write.
+     * 
+     * @param task
+     *            Type and identifier of the task or <code>null</code>.
+     */
+    public void setTask(final String task) {
+        this.task = task;
+    }
+
+    /**
+     * Returns the current task.
+     * 
+     * @return Type and identifier of the task or <code>null</code>.
+     */
+    public String getTask() {
+        return task;
+    }
+
+    /**
+     * Sets the type of line for the next write.
+     * 
+     * @param type
+     *            Type to use.
+     */
+    public void setType(final LogLine.Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the current type of line.
+     * 
+     * @return Type.
+     */
+    public LogLine.Type getType() {
+        return type;
+    }
+
+    @Override
+    protected void writeLine(final String line) {
+        partitions.add(level, task, line, type);
+    }
+
+    @Override
+    protected void writeProgress(final String line) {
+        partitions.add(level, task, line, LogLine.Type.PROGRESS);
+    }
+
+    @Override
+    protected void writeProgressEnd(final String line) {
+        partitions.add(level, task, line, LogLine.Type.PROGRESS_END);
+    }
+
+}
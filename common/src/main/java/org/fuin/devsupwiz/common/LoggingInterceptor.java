@@ -17,15 +17,11 @@
  */
 package org.fuin.devsupwiz.common;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
 
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Logs all method calls on TRACE level annotated with the {@link Loggable}
@@ -37,28 +33,26 @@ public final class LoggingInterceptor extends AbstractInterceptor {
 
     @AroundInvoke
     public final Object logMethodEntry(final InvocationContext ctx) throws Exception {
-        final Logger log = LoggerFactory.getLogger(ctx.getMethod().getDeclaringClass());
-        if (log.isTraceEnabled()) {
-            final int targetHashCode = ctx.getTarget().hashCode();
-            final Method method = ctx.getMethod();
-            final String methodName = signature(method);
-            log.trace("BEGIN {} {}", targetHashCode, methodName);
-            if (method.getParameterCount() > 0) {
-                final Parameter[] params = method.getParameters();
-                for (int i = 0; i < params.length; i++) {
-                    log.trace(params[i].getName() + "=" + ctx.getParameters()[i]);
-                }
-            }
-            final Object retVal = ctx.proceed();
-            if (method.getReturnType() != void.class) {
-                log.trace("returns: {}", retVal);
-            }
-            log.trace("END   {} {}", targetHashCode, methodName);
-            return retVal;
-        } else {
+        final MethodInfo info = methodInfo(ctx.getMethod());
+        final Logger log = info.getLogger();
+        if (!log.isTraceEnabled()) {
             return ctx.proceed();
         }
-
+        final int targetHashCode = ctx.getTarget().hashCode();
+        final String methodName = info.getSignature();
+        log.trace("BEGIN {} {}", targetHashCode, methodName);
+        if (info.getParameterCount() > 0) {
+            final Object[] values = ctx.getParameters();
+            for (int i = 0; i < info.getParameterCount(); i++) {
+                log.trace("{}={}", info.getParameterName(i), values[i]);
+            }
+        }
+        final Object retVal = ctx.proceed();
+        if (info.isReturnsValue()) {
+            log.trace("returns: {}", retVal);
+        }
+        log.trace("END   {} {}", targetHashCode, methodName);
+        return retVal;
     }
 
 }
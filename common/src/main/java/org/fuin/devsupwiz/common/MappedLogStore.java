@@ -0,0 +1,488 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.validation.constraints.NotNull;
+
+import ch.qos.logback.classic.Level;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Log line store that keeps all lines in a memory mapped file. The encoded
+ * lines are appended to a data file and their offsets to an index file, both
+ * mapped in fixed size segments. The heap usage is therefore independent of
+ * the number of lines. The observable list of the store reads and decodes only
+ * the lines that are requested (for example the visible rows of a
+ * {@link LogView}) and caches a small number of them. Intermediate progress
+ * states are not written to the file, only the latest one is kept in memory
+ * and shown as last line.
+ */
+public final class MappedLogStore implements LogLineStore, Closeable {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private static final String PREFIX = "ui-log-";
+
+    private static final String DATA_EXT = ".dat";
+
+    private static final String INDEX_EXT = ".idx";
+
+    private static final int DATA_SEGMENT_BITS = 24;
+
+    private static final int DATA_SEGMENT_SIZE = 1 << DATA_SEGMENT_BITS;
+
+    private static final int INDEX_SEGMENT_BITS = 20;
+
+    private static final int INDEX_SEGMENT_ENTRIES = 1 << INDEX_SEGMENT_BITS;
+
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    // id, level, type, task length, text length
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 2 + 4;
+
+    private static final int CACHE_SIZE = 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final File dataFile;
+
+    private final File indexFile;
+
+    private final FileChannel dataChannel;
+
+    private final FileChannel indexChannel;
+
+    private final MappedLogLineList lines;
+
+    private volatile MappedByteBuffer[] dataSegments;
+
+    private volatile MappedByteBuffer[] indexSegments;
+
+    private volatile int size;
+
+    private volatile LogLine progress;
+
+    private long writeOffset;
+
+    /**
+     * Constructor with data and index file. Existing files will be
+     * overwritten.
+     * 
+     * @param dataFile
+     *            File for the encoded lines.
+     * @param indexFile
+     *            File for the offsets of the lines.
+     * 
+     * @throws IOException
+     *             Error opening the files.
+     */
+    @SuppressWarnings("resource")
+    public MappedLogStore(@NotNull final File dataFile,
+            @NotNull final File indexFile) throws IOException {
+        super();
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.dataChannel = new RandomAccessFile(dataFile, "rw").getChannel();
+        this.indexChannel = new RandomAccessFile(indexFile, "rw").getChannel();
+        this.dataChannel.truncate(0);
+        this.indexChannel.truncate(0);
+        this.dataSegments = new MappedByteBuffer[0];
+        this.indexSegments = new MappedByteBuffer[0];
+        this.lines = new MappedLogLineList();
+    }
+
+    /**
+     * Creates a new store with unique file names in a directory.
+     * 
+     * @param dir
+     *            Directory for the files.
+     * 
+     * @return New store.
+     * 
+     * @throws IOException
+     *             Error creating the files.
+     */
+    public static MappedLogStore create(@NotNull final File dir)
+            throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+        final String name = PREFIX
+                + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+        return new MappedLogStore(new File(dir, name + DATA_EXT),
+                new File(dir, name + INDEX_EXT));
+    }
+
+    /**
+     * Deletes the files of stores created with {@link #create(File)} except
+     * the latest ones. Files that cannot be deleted (for example because
+     * another process still uses them) are skipped.
+     * 
+     * @param dir
+     *            Directory with the files.
+     * @param keep
+     *            Number of latest stores to keep.
+     * 
+     * @return Files that could not be deleted.
+     */
+    public static List<File> deleteOldStores(@NotNull final File dir,
+            final int keep) {
+        final File[] dataFiles = dir.listFiles((file) -> file.isFile()
+                && file.getName().startsWith(PREFIX)
+                && file.getName().endsWith(DATA_EXT));
+        final List<File> failed = new ArrayList<>();
+        if (dataFiles == null || dataFiles.length <= keep) {
+            return failed;
+        }
+        // The names contain the creation time
+        Arrays.sort(dataFiles);
+        for (int i = 0; i < dataFiles.length - Math.max(0, keep); i++) {
+            final String name = dataFiles[i].getName();
+            final File indexFile = new File(dir, name.substring(0,
+                    name.length() - DATA_EXT.length()) + INDEX_EXT);
+            delete(dataFiles[i], failed);
+            delete(indexFile, failed);
+        }
+        return failed;
+    }
+
+    private static void delete(final File file, final List<File> failed) {
+        if (file.exists() && !file.delete()) {
+            failed.add(file);
+        }
+    }
+
+    /**
+     * Closes the store and deletes its files. The lines that are already
+     * mapped remain readable on systems that allow deleting mapped files.
+     * 
+     * @throws IOException
+     *             Error closing the store or deleting the files.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        final List<File> failed = new ArrayList<>();
+        delete(dataFile, failed);
+        delete(indexFile, failed);
+        if (!failed.isEmpty()) {
+            throw new IOException("Failed to delete: " + failed);
+        }
+    }
+
+    /**
+     * Returns the file that contains the encoded lines.
+     * 
+     * @return Data file.
+     */
+    public File getDataFile() {
+        return dataFile;
+    }
+
+    /**
+     * Returns the file that contains the offsets of the lines.
+     * 
+     * @return Index file.
+     */
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    @Override
+    public ObservableList<LogLine> getLines() {
+        return lines;
+    }
+
+    @Override
+    public synchronized void add(@NotNull final LogLine line) {
+        if (line.isProgress()) {
+            progress = line;
+        } else {
+            progress = null;
+            try {
+                append(line);
+            } catch (final IOException ex) {
+                throw new RuntimeException("Error writing to: " + dataFile, ex);
+            }
+        }
+        lines.changed();
+    }
+
+    private void append(final LogLine line) throws IOException {
+        final byte[] task = line.getTask() == null ? EMPTY
+                : line.getTask().getBytes(UTF8);
+        final byte[] text = line.getText().getBytes(UTF8);
+        final int taskLen = Math.min(task.length, Short.MAX_VALUE);
+        final int textLen = Math.min(text.length,
+                DATA_SEGMENT_SIZE - HEADER_SIZE - taskLen);
+        final int recordSize = HEADER_SIZE + taskLen + textLen;
+
+        // Records never span two segments
+        int segmentOffset = (int) (writeOffset & (DATA_SEGMENT_SIZE - 1));
+        if (segmentOffset + recordSize > DATA_SEGMENT_SIZE) {
+            writeOffset = writeOffset + DATA_SEGMENT_SIZE - segmentOffset;
+            segmentOffset = 0;
+        }
+        final ByteBuffer data = dataSegment(
+                (int) (writeOffset >>> DATA_SEGMENT_BITS)).duplicate();
+        data.position(segmentOffset);
+        data.putInt(line.getId());
+        data.putInt(line.getLevel().toInt());
+        data.put((byte) line.getType().ordinal());
+        data.putShort((short) taskLen);
+        data.putInt(textLen);
+        data.put(task, 0, taskLen);
+        data.put(text, 0, textLen);
+
+        final int pos = size;
+        indexSegment(pos >>> INDEX_SEGMENT_BITS).putLong(
+                (pos & (INDEX_SEGMENT_ENTRIES - 1)) * INDEX_ENTRY_SIZE,
+                writeOffset);
+        writeOffset = writeOffset + recordSize;
+
+        // Publish the line
+        size = pos + 1;
+    }
+
+    private MappedByteBuffer dataSegment(final int n) throws IOException {
+        if (n >= dataSegments.length) {
+            final MappedByteBuffer[] segments = Arrays.copyOf(dataSegments,
+                    n + 1);
+            segments[n] = dataChannel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) n * DATA_SEGMENT_SIZE, DATA_SEGMENT_SIZE);
+            dataSegments = segments;
+        }
+        return dataSegments[n];
+    }
+
+    private MappedByteBuffer indexSegment(final int n) throws IOException {
+        if (n >= indexSegments.length) {
+            final MappedByteBuffer[] segments = Arrays.copyOf(indexSegments,
+                    n + 1);
+            final long segmentSize = (long) INDEX_SEGMENT_ENTRIES
+                    * INDEX_ENTRY_SIZE;
+            segments[n] = indexChannel.map(FileChannel.MapMode.READ_WRITE,
+                    n * segmentSize, segmentSize);
+            indexSegments = segments;
+        }
+        return indexSegments[n];
+    }
+
+    /**
+     * Returns the number of lines in the file. May be called from any thread.
+     * 
+     * @return Number of lines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads a line from the file. May be called from any thread.
+     * 
+     * @param position
+     *            Position of the line (zero based).
+     * 
+     * @return Line.
+     */
+    public LogLine get(final int position) {
+        final ByteBuffer data = record(position);
+        final int id = data.getInt();
+        final Level level = Level.toLevel(data.getInt());
+        final LogLine.Type type = LogLine.Type.values()[data.get()];
+        final int taskLen = data.getShort();
+        final int textLen = data.getInt();
+        String task = null;
+        if (taskLen > 0) {
+            final byte[] taskBytes = new byte[taskLen];
+            data.get(taskBytes);
+            task = new String(taskBytes, UTF8);
+        }
+        final byte[] textBytes = new byte[textLen];
+        data.get(textBytes);
+        return new LogLine(id, level, task, new String(textBytes, UTF8), type);
+    }
+
+    private ByteBuffer record(final int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Position " + position + ", size " + size);
+        }
+        final long offset = indexSegments[position >>> INDEX_SEGMENT_BITS]
+                .getLong((position & (INDEX_SEGMENT_ENTRIES - 1))
+                        * INDEX_ENTRY_SIZE);
+        final ByteBuffer data = dataSegments[(int) (offset >>> DATA_SEGMENT_BITS)]
+                .duplicate();
+        data.position((int) (offset & (DATA_SEGMENT_SIZE - 1)));
+        return data;
+    }
+
+    /**
+     * Returns the position of a line in the file.
+     * 
+     * @param id
+     *            Identifier of the line.
+     * 
+     * @return Position or <code>-1</code> if no line with the identifier is in
+     *         the file.
+     */
+    public int positionOf(final int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midId = record(mid).getInt();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void export(@NotNull final Writer writer) throws IOException {
+        final int count = size;
+        for (int i = 0; i < count; i++) {
+            writer.write(get(i).getText());
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!dataChannel.isOpen()) {
+            return;
+        }
+        for (final MappedByteBuffer segment : dataSegments) {
+            segment.force();
+        }
+        for (final MappedByteBuffer segment : indexSegments) {
+            segment.force();
+        }
+        dataChannel.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Observable list view on the file. Must only be used in the JavaFX
+     * application thread.
+     */
+    private final class MappedLogLineList extends ObservableListBase<LogLine> {
+
+        private final AtomicBoolean scheduled;
+
+        private final Map<Integer, LogLine> cache;
+
+        private int visibleSize;
+
+        private LogLine visibleProgress;
+
+        MappedLogLineList() {
+            super();
+            scheduled = new AtomicBoolean(false);
+            cache = new LinkedHashMap<Integer, LogLine>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<Integer, LogLine> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+        }
+
+        void changed() {
+            if (scheduled.compareAndSet(false, true)) {
+                if (Platform.isFxApplicationThread()) {
+                    refresh();
+                } else {
+                    FxQueue.runLater(this::refresh);
+                }
+            }
+        }
+
+        private void refresh() {
+            scheduled.set(false);
+            final int newSize = MappedLogStore.this.size;
+            final LogLine newProgress = MappedLogStore.this.progress;
+            if (newSize == visibleSize && newProgress == visibleProgress) {
+                return;
+            }
+            final int oldSize = visibleSize;
+            final LogLine oldProgress = visibleProgress;
+            visibleSize = newSize;
+            visibleProgress = newProgress;
+            beginChange();
+            if (oldProgress != null) {
+                nextRemove(oldSize, oldProgress);
+            }
+            final int to = newSize + (newProgress == null ? 0 : 1);
+            if (to > oldSize) {
+                nextAdd(oldSize, to);
+            }
+            endChange();
+        }
+
+        @Override
+        public LogLine get(final int index) {
+            if (index == visibleSize && visibleProgress != null) {
+                return visibleProgress;
+            }
+            if (index < 0 || index >= visibleSize) {
+                throw new IndexOutOfBoundsException(
+                        "Index " + index + ", size " + size());
+            }
+            LogLine line = cache.get(index);
+            if (line == null) {
+                line = MappedLogStore.this.get(index);
+                cache.put(index, line);
+            }
+            return line;
+        }
+
+        @Override
+        public int size() {
+            return visibleSize + (visibleProgress == null ? 0 : 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Application wide registry of counters and gauges. Histograms are kept in
+ * {@link LatencyHistograms}. The metrics can be exported via JMX and written
+ * to a file in Prometheus text format using {@link PrometheusTextFileWriter}.
+ */
+public final class Metrics {
+
+    /** Name of the JMX bean. */
+    public static final String OBJECT_NAME = "org.fuin.devsupwiz:type=Metrics";
+
+    private static final ConcurrentMap<String, Counter> COUNTERS =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Gauge> GAUGES =
+            new ConcurrentHashMap<>();
+
+    /** Number of successfully executed tasks. */
+    public static final Counter TASKS_EXECUTED = counter(
+            "devsupwiz_tasks_executed_total",
+            "Number of successfully executed setup tasks");
+
+    /** Number of failed tasks. */
+    public static final Counter TASKS_FAILED = counter(
+            "devsupwiz_tasks_failed_total",
+            "Number of setup tasks that failed");
+
+    /** Number of tasks skipped because they were already executed. */
+    public static final Counter TASKS_SKIPPED = counter(
+            "devsupwiz_tasks_skipped_total",
+            "Number of setup tasks skipped because they were already executed");
+
+    /** Number of launched shell commands. */
+    public static final Counter COMMANDS_LAUNCHED = counter(
+            "devsupwiz_commands_launched_total",
+            "Number of launched shell commands");
+
+    /**
+     * Number of shell commands that failed or returned an unexpected exit
+     * code.
+     */
+    public static final Counter COMMANDS_FAILED = counter(
+            "devsupwiz_commands_failed_total",
+            "Number of shell commands that failed");
+
+    /** Number of times the configuration was persisted. */
+    public static final Counter CONFIG_PERSISTED = counter(
+            "devsupwiz_config_persist_total",
+            "Number of times the configuration was written to disk");
+
+    /** Number of log lines shown in the UI. */
+    public static final Counter LOG_LINES = counter(
+            "devsupwiz_log_lines_total",
+            "Number of log lines added to the UI");
+
+    /** Number of log events discarded by a full asynchronous appender. */
+    public static final Counter LOG_EVENTS_DISCARDED = counter(
+            "devsupwiz_log_events_discarded_total",
+            "Number of log events discarded because the buffer of an "
+                    + "asynchronous appender was full");
+
+    /** Number of log lines dropped before the UI displayed them. */
+    public static final Counter LOG_LINES_DROPPED = counter(
+            "devsupwiz_log_lines_dropped_total",
+            "Number of log lines dropped because more lines were waiting for "
+                    + "the UI than it keeps");
+
+    static {
+        gauge("devsupwiz_log_lines_per_second",
+                "Log lines added to the UI per second", new Rate(LOG_LINES));
+        gauge("devsupwiz_fx_queue_depth",
+                "Runnables waiting for the JavaFX application thread",
+                FxQueue::getDepth);
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns a counter and creates it if it does not exist yet.
+     * 
+     * @param name
+     *            Unique name of the counter.
+     * @param help
+     *            Description of the counter.
+     * 
+     * @return Counter.
+     */
+    public static Counter counter(@NotEmpty final String name,
+            @NotEmpty final String help) {
+        return COUNTERS.computeIfAbsent(name, (n) -> new Counter(n, help));
+    }
+
+    /**
+     * Registers a gauge. An existing gauge with the same name is replaced.
+     * 
+     * @param name
+     *            Unique name of the gauge.
+     * @param help
+     *            Description of the gauge.
+     * @param supplier
+     *            Supplies the current value. Must be thread safe.
+     * 
+     * @return Gauge.
+     */
+    public static Gauge gauge(@NotEmpty final String name,
+            @NotEmpty final String help,
+            @NotNull final DoubleSupplier supplier) {
+        final Gauge gauge = new Gauge(name, help, supplier);
+        GAUGES.put(name, gauge);
+        return gauge;
+    }
+
+    /**
+     * Returns all counters sorted by name.
+     * 
+     * @return Snapshot of the currently registered counters.
+     */
+    public static List<Counter> getCounters() {
+        final List<Counter> list = new ArrayList<>(COUNTERS.values());
+        Collections.sort(list, Comparator.comparing(Counter::getName));
+        return list;
+    }
+
+    /**
+     * Returns all gauges sorted by name.
+     * 
+     * @return Snapshot of the currently registered gauges.
+     */
+    public static List<Gauge> getGauges() {
+        final List<Gauge> list = new ArrayList<>(GAUGES.values());
+        Collections.sort(list, Comparator.comparing(Gauge::getName));
+        return list;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server. Does nothing if
+     * already registered.
+     */
+    public static void registerMBean() {
+        try {
+            final MBeanServer server = ManagementFactory
+                    .getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (final JMException ex) {
+            throw new RuntimeException(
+                    "Failed to register MBean: " + OBJECT_NAME, ex);
+        }
+    }
+
+    /**
+     * Monotonically increasing value.
+     */
+    public static final class Counter {
+
+        private final String name;
+
+        private final String help;
+
+        private final LongAdder value;
+
+        private Counter(final String name, final String help) {
+            super();
+            this.name = name;
+            this.help = help;
+            this.value = new LongAdder();
+        }
+
+        /**
+         * Returns the name.
+         * 
+         * @return Unique name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the description.
+         * 
+         * @return Help text.
+         */
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * Increments the counter by one.
+         */
+        public void increment() {
+            value.increment();
+        }
+
+        /**
+         * Returns the current value.
+         * 
+         * @return Value.
+         */
+        public long get() {
+            return value.sum();
+        }
+
+    }
+
+    /**
+     * Value that is read on demand.
+     */
+    public static final class Gauge {
+
+        private final String name;
+
+        private final String help;
+
+        private final DoubleSupplier supplier;
+
+        private Gauge(final String name, final String help,
+                final DoubleSupplier supplier) {
+            super();
+            this.name = name;
+            this.help = help;
+            this.supplier = supplier;
+        }
+
+        /**
+         * Returns the name.
+         * 
+         * @return Unique name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the description.
+         * 
+         * @return Help text.
+         */
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * Returns the current value.
+         * 
+         * @return Value.
+         */
+        public double get() {
+            return supplier.getAsDouble();
+        }
+
+    }
+
+    /**
+     * Computes the per second rate of a counter since the previous read. Reads
+     * within a second return the previous rate.
+     */
+    private static final class Rate implements DoubleSupplier {
+
+        private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS
+                .toNanos(1);
+
+        private final Counter counter;
+
+        private long lastNanos;
+
+        private long lastCount;
+
+        private double rate;
+
+        Rate(final Counter counter) {
+            super();
+            this.counter = counter;
+            this.lastNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized double getAsDouble() {
+            final long now = System.nanoTime();
+            final long elapsed = now - lastNanos;
+            if (elapsed >= MIN_INTERVAL_NANOS) {
+                final long count = counter.get();
+                rate = (count - lastCount)
+                        * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+
+                lastCount = count;
+                lastNanos = now;
+            }
+            return rate;
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the {@link Metrics} and {@link LatencyHistograms} as read-only
+ * attributes of a dynamic MBean. The attributes are created from the metrics
+ * registered at the time of the request. Only the requested attributes are
+ * read, so browsing the MBean info does not evaluate (and for rates reset) any
+ * gauge. Latencies are exported in milliseconds.
+ */
+final class MetricsMBean implements DynamicMBean {
+
+    @Override
+    public Object getAttribute(final String attribute)
+            throws AttributeNotFoundException {
+        final Supplier<Object> value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value.get();
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute)
+            throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(
+                "Attribute is read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        final Map<String, Supplier<Object>> values = attributes();
+        final AttributeList list = new AttributeList();
+        for (final String name : attributes) {
+            final Supplier<Object> value = values.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value.get()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params,
+            final String[] signature) throws ReflectionException {
+        // There are no operations
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (final Metrics.Counter counter : Metrics.getCounters()) {
+            attributes.add(
+                    info(counter.getName(), Long.class, counter.getHelp()));
+        }
+        for (final Metrics.Gauge gauge : Metrics.getGauges()) {
+            attributes.add(
+                    info(gauge.getName(), Double.class, gauge.getHelp()));
+        }
+        for (final LatencyHistogram histogram : LatencyHistograms.getAll()) {
+            final String name = histogram.getName();
+            attributes.add(
+                    info(name + ".count", Long.class, name + " (count)"));
+            attributes.add(
+                    info(name + ".p50", Double.class, name + " (p50 in ms)"));
+            attributes.add(
+                    info(name + ".p99", Double.class, name + " (p99 in ms)"));
+            attributes.add(
+                    info(name + ".max", Double.class, name + " (max in ms)"));
+        }
+        return new MBeanInfo(getClass().getName(), "Dev Setup Wizard metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[0], null);
+    }
+
+    private static MBeanAttributeInfo info(final String name,
+            final Class<?> type, final String description) {
+        return new MBeanAttributeInfo(name, type.getName(), description, true,
+                false, false);
+    }
+
+
+    private static Map<String, Supplier<Object>> attributes() {
+        final Map<String, Supplier<Object>> values = new LinkedHashMap<>();
+        for (final Metrics.Counter counter : Metrics.getCounters()) {
+            values.put(counter.getName(), counter::get);
+        }
+        for (final Metrics.Gauge gauge : Metrics.getGauges()) {
+            values.put(gauge.getName(), gauge::get);
+        }
+        for (final LatencyHistogram histogram : LatencyHistograms.getAll()) {
+            final String name = histogram.getName();
+            values.put(name + ".count", histogram::getCount);
+            values.put(name + ".p50", () -> millis(histogram.getPercentile(50)));
+            values.put(name + ".p99", () -> millis(histogram.getPercentile(99)));
+            values.put(name + ".max", () -> millis(histogram.getMax()));
+        }
+        return values;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1000000.0;
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Immutable progress state of a running task.
+ */
+public final class Progress {
+
+    /** Value of the fraction if it is unknown. */
+    public static final double UNKNOWN = -1;
+
+    /** Unit of a throughput in bytes. */
+    public static final String BYTES = "B";
+
+    private static final String[] BINARY_PREFIXES =
+            new String[] { "", "Ki", "Mi", "Gi", "Ti" };
+
+    private final double fraction;
+
+    private final String step;
+
+    private final double throughput;
+
+    private final String unit;
+
+    /**
+     * Constructor without throughput.
+     * 
+     * @param fraction
+     *            Fraction done between 0 and 1 or {@link #UNKNOWN}.
+     * @param step
+     *            Current sub-step or <code>null</code>.
+     */
+    public Progress(final double fraction, @Nullable final String step) {
+        this(fraction, step, UNKNOWN, null);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param fraction
+     *            Fraction done between 0 and 1 or {@link #UNKNOWN}.
+     * @param step
+     *            Current sub-step or <code>null</code>.
+     * @param throughput
+     *            Units per second or {@link #UNKNOWN}.
+     * @param unit
+     *            Unit of the throughput like {@link #BYTES} or "items". May be
+     *            <code>null</code> if the throughput is unknown.
+     */
+    public Progress(final double fraction, @Nullable final String step,
+            final double throughput, @Nullable final String unit) {
+        super();
+        this.fraction = fraction < 0 ? UNKNOWN : Math.min(1, fraction);
+        this.step = step;
+        this.throughput = throughput < 0 ? UNKNOWN : throughput;
+        this.unit = unit;
+    }
+
+    /**
+     * Returns the fraction done.
+     * 
+     * @return Value between 0 and 1 or {@link #UNKNOWN}.
+     */
+    public double getFraction() {
+        return fraction;
+    }
+
+    /**
+     * Determines if the fraction is known.
+     * 
+     * @return <code>true</code> if {@link #getFraction()} is not
+     *         {@link #UNKNOWN}.
+     */
+    public boolean isDeterminate() {
+        return fraction != UNKNOWN;
+    }
+
+    /**
+     * Returns the current sub-step.
+     * 
+     * @return Human readable step or <code>null</code>.
+     */
+    @Nullable
+    public String getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the throughput.
+     * 
+     * @return Units per second or {@link #UNKNOWN}.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the unit of the throughput.
+     * 
+     * @return Unit or <code>null</code>.
+     */
+    @Nullable
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Returns the throughput for humans.
+     * 
+     * @return Text like "2.4 MiB/s" or "12.0 items/s" or <code>null</code> if
+     *         the throughput is unknown.
+     */
+    @Nullable
+    public String formatThroughput() {
+        if (throughput == UNKNOWN) {
+            return null;
+        }
+        if (BYTES.equals(unit)) {
+            double value = throughput;
+            int prefix = 0;
+            while (value >= 1024 && prefix < BINARY_PREFIXES.length - 1) {
+                value = value / 1024;
+                prefix++;
+            }
+            return String.format(Locale.ROOT, "%.1f %sB/s", value,
+                    BINARY_PREFIXES[prefix]);
+        }
+        return String.format(Locale.ROOT, "%.1f %s/s", throughput,
+                unit == null ? "" : unit);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        if (step != null) {
+            sb.append(step);
+        }
+        if (isDeterminate()) {
+            sb.append(sb.length() == 0 ? "" : " ")
+                    .append(Math.round(fraction * 100)).append('%');
+
+        }
+        final String formatted = formatThroughput();
+        if (formatted != null) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(formatted);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Receives the progress of a running task. Tasks report their progress with
+ * {@link ProgressReporter#report(Progress)}.
+ */
+public interface ProgressListener {
+
+    /**
+     * Called for each progress update. May be called from any thread.
+     * 
+     * @param progress
+     *            Latest progress.
+     */
+    public void progress(@NotNull Progress progress);
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Turns a line of command output into progress. Used by
+ * {@link LogOutputStream} to report the progress of a command.
+ */
+public interface ProgressParser {
+
+    /**
+     * Parses a line of output.
+     * 
+     * @param line
+     *            Line without line terminators.
+     * 
+     * @return Progress or <code>null</code> if the line does not contain any.
+     */
+    @Nullable
+    public Progress parse(@NotNull String line);
+
+}
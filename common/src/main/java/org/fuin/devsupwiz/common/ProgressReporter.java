@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Connects running tasks with the listener of whoever executes them. Like the
+ * MDC, the listener is bound to the executing thread. Streams that are written
+ * by other threads (like {@link LogOutputStream}) capture the listener of the
+ * thread that creates them.
+ */
+public final class ProgressReporter {
+
+    private static final ProgressListener NONE = (progress) -> {
+        // Nobody is interested
+    };
+
+    private static final ThreadLocal<ProgressListener> LISTENER =
+            new ThreadLocal<>();
+
+    private ProgressReporter() {
+    }
+
+    /**
+     * Sets the listener for the current thread.
+     * 
+     * @param listener
+     *            Listener that receives the progress of tasks executed by the
+     *            current thread.
+     */
+    public static void set(@NotNull final ProgressListener listener) {
+        LISTENER.set(listener);
+    }
+
+    /**
+     * Removes the listener from the current thread.
+     */
+    public static void remove() {
+        LISTENER.remove();
+    }
+
+    /**
+     * Returns the listener of the current thread.
+     * 
+     * @return Listener or one that ignores all updates if none is set.
+     */
+    public static ProgressListener current() {
+        final ProgressListener listener = LISTENER.get();
+        if (listener == null) {
+            return NONE;
+        }
+        return listener;
+    }
+
+    /**
+     * Reports progress to the listener of the current thread.
+     * 
+     * @param progress
+     *            Latest progress.
+     */
+    public static void report(@NotNull final Progress progress) {
+        current().progress(progress);
+    }
+
+    /**
+     * Reports the sub-step that starts now.
+     * 
+     * @param step
+     *            Human readable step or <code>null</code>.
+     */
+    public static void step(@Nullable final String step) {
+        report(new Progress(Progress.UNKNOWN, step));
+    }
+
+}
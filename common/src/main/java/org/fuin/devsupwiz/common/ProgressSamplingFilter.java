@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Lets only one progress state (log message with the
+ * {@link DevSupWizUtils#MARKER_PROGRESS} marker) per interval pass. The
+ * interval is tracked separately per {@link SetupSession} (see
+ * {@link DevSupWizUtils#MDC_SESSION_KEY}), so the progress of one session does
+ * not suppress the progress of another one. The interval of a session is
+ * removed from all started filters when the session is closed. All other log
+ * messages are not touched.
+ */
+public final class ProgressSamplingFilter extends Filter<ILoggingEvent> {
+
+    /** Default interval in milliseconds. */
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private static final Set<ProgressSamplingFilter> STARTED = ConcurrentHashMap
+            .newKeySet();
+
+    private long intervalMillis;
+
+    private final Map<String, AtomicLong> last;
+
+    /**
+     * Default constructor.
+     */
+    public ProgressSamplingFilter() {
+        super();
+        intervalMillis = DEFAULT_INTERVAL_MILLIS;
+        last = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the minimal time between two progress states that pass.
+     * 
+     * @return Interval in milliseconds.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Sets the minimal time between two progress states that pass. A value of
+     * zero or less lets all progress states pass.
+     * 
+     * @param intervalMillis
+     *            Interval in milliseconds.
+     */
+    public void setIntervalMillis(final long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void start() {
+        STARTED.add(this);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        STARTED.remove(this);
+        last.clear();
+    }
+
+    /**
+     * Forgets the interval of a session in all started filters.
+     * 
+     * @param session
+     *            Identifier of the closed session.
+     */
+    static void sessionClosed(@NotNull final String session) {
+        for (final ProgressSamplingFilter filter : STARTED) {
+            filter.last.remove(session);
+        }
+    }
+
+    @Override
+    public FilterReply decide(final ILoggingEvent event) {
+        final LogLine.Type type = DevSupWizUtils.lineType(event.getMarker());
+        if (intervalMillis <= 0 || type != LogLine.Type.PROGRESS) {
+            return FilterReply.NEUTRAL;
+        }
+        final String session = event.getMDCPropertyMap()
+                .get(DevSupWizUtils.MDC_SESSION_KEY);
+        final AtomicLong sessionLast = last.computeIfAbsent(
+                session == null ? "" : session,
+                (key) -> new AtomicLong(Long.MIN_VALUE));
+        final long now = event.getTimeStamp();
+        final long prev = sessionLast.get();
+        if (prev != Long.MIN_VALUE && now - prev < intervalMillis) {
+            return FilterReply.DENY;
+        }
+        if (sessionLast.compareAndSet(prev, now)) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+}
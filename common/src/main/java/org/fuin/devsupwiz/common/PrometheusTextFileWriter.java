@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically writes the {@link Metrics} and {@link LatencyHistograms} to a
+ * file in Prometheus text format. The file is replaced atomically, so it can be
+ * picked up by the textfile collector of the node exporter at any time.
+ */
+public final class PrometheusTextFileWriter implements Closeable {
+
+    /** Default number of seconds between two writes. */
+    public static final long DEFAULT_INTERVAL_SECONDS = 15;
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(PrometheusTextFileWriter.class);
+
+    private static final String LATENCY = "devsupwiz_latency_seconds";
+
+    private static final double[] QUANTILES = new double[] { 0.5, 0.9, 0.99 };
+
+    private final File file;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Constructor with file and interval. Starts writing immediately.
+     * 
+     * @param file
+     *            File to write. Should have the extension ".prom".
+     * @param intervalSeconds
+     *            Number of seconds between two writes.
+     */
+    public PrometheusTextFileWriter(@NotNull final File file,
+            final long intervalSeconds) {
+        super();
+        this.file = file;
+        this.executor = Executors
+                .newSingleThreadScheduledExecutor((runnable) -> {
+                    final Thread thread = new Thread(runnable,
+                            "devsupwiz-metrics-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.scheduleWithFixedDelay(this::writeQuietly, 0,
+                intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic writing and writes the file a last time.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writeQuietly();
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (final IOException | RuntimeException ex) {
+            LOG.warn("Failed to write metrics to: " + file, ex);
+        }
+    }
+
+    /**
+     * Writes the file. A temporary file is written first and then moved to
+     * the target file.
+     * 
+     * @throws IOException
+     *             Error writing the file.
+     */
+    public synchronized void write() throws IOException {
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(tmpFile.toPath()),
+                Charset.forName("utf-8")))) {
+            format(writer);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes all metrics in Prometheus text format.
+     * 
+     * @param writer
+     *            Writer to use.
+     * 
+     * @throws IOException
+     *             Error writing the metrics.
+     */
+    public static void format(@NotNull final Writer writer)
+            throws IOException {
+        for (final Metrics.Counter counter : Metrics.getCounters()) {
+            header(writer, counter.getName(), counter.getHelp(), "counter");
+            writer.write(counter.getName() + " " + counter.get() + "\n");
+        }
+        for (final Metrics.Gauge gauge : Metrics.getGauges()) {
+            header(writer, gauge.getName(), gauge.getHelp(), "gauge");
+            writer.write(gauge.getName() + " " + number(gauge.get()) + "\n");
+        }
+        boolean first = true;
+        for (final LatencyHistogram histogram : LatencyHistograms.getAll()) {
+            if (first) {
+                header(writer, LATENCY, "Latency of method calls", "summary");
+                first = false;
+            }
+            final String label = "method=\"" + escape(histogram.getName())
+                    + "\"";
+            for (final double quantile : QUANTILES) {
+                writer.write(LATENCY + "{" + label + ",quantile=\"" + quantile
+                        + "\"} "
+                        + seconds(histogram.getPercentile(quantile * 100))
+                        + "\n");
+            }
+            writer.write(LATENCY + "_sum{" + label + "} "
+                    + seconds(histogram.getSum()) + "\n");
+            writer.write(LATENCY + "_count{" + label + "} "
+                    + histogram.getCount() + "\n");
+        }
+    }
+
+    private static void header(final Writer writer, final String name,
+            final String help, final String type) throws IOException {
+
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static String seconds(final long nanos) {
+        return number(nanos / 1000000000.0);
+    }
+
+    private static String number(final double value) {
+        return Double.toString(value);
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+}
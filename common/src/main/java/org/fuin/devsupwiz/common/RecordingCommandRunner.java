@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Base64;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.io.output.TeeOutputStream;
+
+/**
+ * Runs commands with another runner and appends each command together with
+ * its output and exit code to a file. The file can be used by a
+ * {@link ReplayingCommandRunner}. Passwords and environment variables are not
+ * recorded.
+ */
+public final class RecordingCommandRunner implements CommandRunner {
+
+    /** First line of a recording file. */
+    static final String HEADER = "# devsupwiz command recording v1";
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private final CommandRunner delegate;
+
+    private final File file;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param delegate
+     *            Runner that executes the commands.
+     * @param file
+     *            File to append the recorded commands to.
+     */
+    public RecordingCommandRunner(@NotNull final CommandRunner delegate,
+            @NotNull final File file) {
+        super();
+        this.delegate = delegate;
+        this.file = file;
+    }
+
+    @Override
+    public int run(@NotNull final Command command,
+            @NotNull final OutputStream out, @NotNull final OutputStream err) {
+
+        final ByteArrayOutputStream outCopy = new ByteArrayOutputStream();
+        final ByteArrayOutputStream errCopy = new ByteArrayOutputStream();
+        try {
+            final int exitCode = delegate.run(command,
+                    new TeeOutputStream(out, outCopy),
+                    new TeeOutputStream(err, errCopy));
+            record(command, exitCode, outCopy, errCopy);
+            return exitCode;
+        } catch (final RuntimeException ex) {
+            record(command, exitCode(ex), outCopy, errCopy);
+            throw ex;
+        }
+    }
+
+    private static int exitCode(final Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof ExecuteException) {
+                return ((ExecuteException) t).getExitValue();
+            }
+        }
+        // Not started or timed out
+        return -1;
+    }
+
+    private synchronized void record(final Command command, final int exitCode,
+            final ByteArrayOutputStream out, final ByteArrayOutputStream err) {
+        final boolean header = !file.exists() || file.length() == 0;
+        try (final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file, true), UTF8))) {
+            if (header) {
+                writer.write(HEADER);
+                writer.write('\n');
+            }
+            writer.write(encode(command.isSudo() ? "sudo" : "") + "\t"
+                    + encode(command.getWorkingDir().getPath()) + "\t"
+                    + encode(command.getCmd()) + "\t" + exitCode + "\t"
+                    + Base64.getEncoder().encodeToString(out.toByteArray())
+                    + "\t"
+                    + Base64.getEncoder().encodeToString(err.toByteArray())
+                    + "\n");
+        } catch (final IOException ex) {
+            throw new RuntimeException(
+                    "Failed to record command to: " + file, ex);
+
+        }
+    }
+
+    private static String encode(final String str) {
+        return Base64.getEncoder().encodeToString(str.getBytes(UTF8));
+    }
+
+}
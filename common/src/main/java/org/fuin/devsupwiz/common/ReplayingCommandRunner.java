@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Serves commands from a file written by a {@link RecordingCommandRunner}
+ * instead of executing them. Commands are identified by
+ * {@link Command#getKey()}. If a command was recorded several times, the
+ * recordings are replayed in the same order and the last one is repeated
+ * after that. A command that was not recorded fails.
+ */
+public final class ReplayingCommandRunner implements CommandRunner {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private final File file;
+
+    private final Map<String, Deque<Recording>> recordings;
+
+    /**
+     * Constructor with the recording file.
+     * 
+     * @param file
+     *            File with recorded commands.
+     */
+    public ReplayingCommandRunner(@NotNull final File file) {
+        super();
+        this.file = file;
+        this.recordings = load(file);
+    }
+
+    @Override
+    public int run(@NotNull final Command command,
+            @NotNull final OutputStream out, @NotNull final OutputStream err) {
+
+        final Recording recording = next(command.getKey());
+        if (recording == null) {
+            throw new RuntimeException("No recording for command '"
+                    + command.getKey() + "' in: " + file);
+        }
+        try {
+            out.write(recording.out);
+            err.write(recording.err);
+        } catch (final IOException ex) {
+            throw new RuntimeException(
+                    "Failed to replay output of: " + command.getKey(), ex);
+        }
+        if (recording.exitCode != 0) {
+            throw new RuntimeException(new ExecuteException(
+                    "Process exited with an error: " + recording.exitCode
+                            + " (Replayed)",
+                    recording.exitCode));
+        }
+        return recording.exitCode;
+    }
+
+    private synchronized Recording next(final String key) {
+        final Deque<Recording> queue = recordings.get(key);
+        if (queue == null) {
+            return null;
+        }
+        if (queue.size() > 1) {
+            return queue.removeFirst();
+        }
+        return queue.peekFirst();
+    }
+
+    private static Map<String, Deque<Recording>> load(final File file) {
+        final List<String> lines;
+        try {
+            lines = FileUtils.readLines(file, UTF8);
+        } catch (final IOException ex) {
+            throw new RuntimeException(
+                    "Failed to read recorded commands: " + file, ex);
+        }
+        final Map<String, Deque<Recording>> map = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = line.split("\t", -1);
+            if (fields.length != 6) {
+                throw new IllegalArgumentException("Invalid recording in line "
+                        + (i + 1) + " of: " + file);
+            }
+            final String key = Command.key(!decode(fields[0]).isEmpty(),
+                    decode(fields[2]), new File(decode(fields[1])));
+            final Recording recording = new Recording(
+                    Integer.parseInt(fields[3]),
+                    Base64.getDecoder().decode(fields[4]),
+                    Base64.getDecoder().decode(fields[5]));
+            map.computeIfAbsent(key, (k) -> new ArrayDeque<>())
+                    .addLast(recording);
+
+        }
+        return map;
+    }
+
+    private static String decode(final String str) {
+        return new String(Base64.getDecoder().decode(str), UTF8);
+    }
+
+    @Override
+    public boolean executesCommands() {
+        return false;
+    }
+
+    /**
+     * Recorded result of a command.
+     */
+    private static final class Recording {
+
+        private final int exitCode;
+
+        private final byte[] out;
+
+        private final byte[] err;
+
+        Recording(final int exitCode, final byte[] out, final byte[] err) {
+            super();
+            this.exitCode = exitCode;
+            this.out = out;
+            this.err = err;
+        }
+
+    }
+
+}
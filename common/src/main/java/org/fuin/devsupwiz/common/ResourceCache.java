@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Collection;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javafx.scene.image.Image;
+
+/**
+ * Application wide cache for decoded images and resource bundles. Entries are
+ * loaded on first access and may be loaded in advance in the background using
+ * {@link #warmUp(Collection, Collection)}. All methods may be called from any
+ * thread.
+ */
+public final class ResourceCache {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ResourceCache.class);
+
+    private static final ConcurrentMap<String, Image> IMAGES =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, ResourceBundle> BUNDLES =
+            new ConcurrentHashMap<>();
+
+    private ResourceCache() {
+    }
+
+    /**
+     * Returns a decoded image. Images are shared, so they must not be changed.
+     * 
+     * @param path
+     *            Absolute classpath resource like "/info-24x24.png".
+     * 
+     * @return Image.
+     */
+    public static Image getImage(@NotEmpty final String path) {
+        final Image image = IMAGES.get(path);
+        if (image != null) {
+            return image;
+        }
+        return IMAGES.computeIfAbsent(path, Image::new);
+    }
+
+    /**
+     * Returns a resource bundle for the default locale.
+     * 
+     * @param baseName
+     *            Base name of the bundle like "org/fuin/devsupwiz/base/main".
+     * 
+     * @return Resource bundle.
+     */
+    public static ResourceBundle getBundle(@NotEmpty final String baseName) {
+        final ResourceBundle bundle = BUNDLES.get(baseName);
+        if (bundle != null) {
+            return bundle;
+        }
+        return BUNDLES.computeIfAbsent(baseName, ResourceBundle::getBundle);
+    }
+
+    /**
+     * Loads images and resource bundles in the background. Resources that
+     * cannot be loaded are ignored and will fail again on first access.
+     * 
+     * @param imagePaths
+     *            Paths of the images to load.
+     * @param bundleNames
+     *            Base names of the resource bundles to load.
+     * 
+     * @return Future that completes when all resources are loaded.
+     */
+    public static CompletableFuture<Void> warmUp(
+            @NotNull final Collection<String> imagePaths,
+            @NotNull final Collection<String> bundleNames) {
+
+        return CompletableFuture.runAsync(() -> {
+            for (final String path : imagePaths) {
+                try {
+                    getImage(path);
+                } catch (final RuntimeException ex) {
+                    LOG.warn("Failed to load image: {}", path, ex);
+                }
+            }
+            for (final String baseName : bundleNames) {
+                try {
+                    getBundle(baseName);
+                } catch (final RuntimeException ex) {
+                    LOG.warn("Failed to load resource bundle: {}", baseName, ex);
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,427 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/**
+ * Decouples the logging thread from the attached appenders using a bounded
+ * lock-free ring buffer and a single worker thread. A slow disk or a busy
+ * JavaFX application thread will therefore not block a thread that logs - For
+ * example the threads that drain the output of a child process. The
+ * {@link OverflowPolicy} defines what happens if the buffer is full. Discarded
+ * events are not lost silently: The worker passes a WARN event with the number
+ * of events discarded since the last one to the attached appenders, so it
+ * appears in the UI and in the log file.
+ */
+public final class RingBufferAsyncAppender extends
+        UnsynchronizedAppenderBase<ILoggingEvent> implements
+        AppenderAttachable<ILoggingEvent> {
+
+    /**
+     * Defines what happens with an event if the buffer is full.
+     */
+    public enum OverflowPolicy {
+
+        /** Discard the event. The logging thread never waits. */
+        DISCARD,
+
+        /**
+         * Discard TRACE, DEBUG and INFO events, but wait until there is space
+         * for WARN and ERROR events.
+         */
+        DISCARD_BELOW_WARN,
+
+        /** Wait until there is space for the event. */
+        BLOCK;
+
+    }
+
+    /** Default number of events the buffer can hold. */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Default maximum time to wait for the worker to flush on stop. */
+    public static final long DEFAULT_MAX_FLUSH_MILLIS = 1000;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(10);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS
+            .toNanos(100);
+
+    /** Minimal time between two events that report discarded events. */
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS
+            .toNanos(1);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders;
+
+    private final AtomicLong discarded;
+
+    private int bufferSize;
+
+    private OverflowPolicy overflowPolicy;
+
+    private long maxFlushMillis;
+
+    private RingBuffer buffer;
+
+    private Worker worker;
+
+    /**
+     * Default constructor.
+     */
+    public RingBufferAsyncAppender() {
+        super();
+        appenders = new AppenderAttachableImpl<>();
+        discarded = new AtomicLong();
+        bufferSize = DEFAULT_BUFFER_SIZE;
+        overflowPolicy = OverflowPolicy.DISCARD;
+        maxFlushMillis = DEFAULT_MAX_FLUSH_MILLIS;
+    }
+
+    /**
+     * Returns the number of events the buffer can hold.
+     * 
+     * @return Buffer size.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of events the buffer can hold. The value is rounded up
+     * to the next power of two. Has no effect after the appender was started.
+     * 
+     * @param bufferSize
+     *            Buffer size.
+     */
+    public void setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns what happens with an event if the buffer is full.
+     * 
+     * @return Overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens with an event if the buffer is full.
+     * 
+     * @param overflowPolicy
+     *            Overflow policy.
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Returns the maximum time to wait for the remaining events to be
+     * delivered when the appender is stopped.
+     * 
+     * @return Time in milliseconds.
+     */
+    public long getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+
+    /**
+     * Sets the maximum time to wait for the remaining events to be delivered
+     * when the appender is stopped.
+     * 
+     * @param maxFlushMillis
+     *            Time in milliseconds.
+     */
+    public void setMaxFlushMillis(final long maxFlushMillis) {
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    /**
+     * Returns the number of events that were discarded because the buffer was
+     * full.
+     * 
+     * @return Number of discarded events.
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (bufferSize < 1) {
+            addError("Invalid buffer size: " + bufferSize);
+            return;
+        }
+        if (overflowPolicy == null) {
+            addError("No overflow policy set");
+            return;
+        }
+        buffer = new RingBuffer(bufferSize);
+        worker = new Worker();
+        worker.setDaemon(true);
+        worker.setName("devsupwiz-async-" + getName());
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushMillis);
+            if (worker.isAlive()) {
+                addWarn("Max flush time of " + maxFlushMillis
+                        + " ms exceeded - Remaining events are lost");
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            addError("Interrupted while waiting for worker to finish", ex);
+        }
+        final long count = discarded.get();
+        if (count > 0) {
+            addWarn("Discarded " + count + " events because the buffer was full");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(final ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (buffer.offer(event)) {
+            worker.wakeUp();
+            return;
+        }
+        if (mustWait(event)) {
+            while (isStarted()) {
+                worker.wakeUp();
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                if (buffer.offer(event)) {
+                    worker.wakeUp();
+                    return;
+                }
+            }
+        }
+        Metrics.LOG_EVENTS_DISCARDED.increment();
+        if (discarded.getAndIncrement() == 0) {
+            addWarn("Buffer full - Discarding events (policy="
+                    + overflowPolicy + ")");
+        }
+    }
+
+    private boolean mustWait(final ILoggingEvent event) {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            return true;
+        }
+        return overflowPolicy == OverflowPolicy.DISCARD_BELOW_WARN
+                && event.getLevel().isGreaterOrEqual(Level.WARN);
+    }
+
+    @Override
+    public void addAppender(final Appender<ILoggingEvent> newAppender) {
+        addInfo("Attaching appender named [" + newAppender.getName() + "]");
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(final String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(final Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(final Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(final String name) {
+        return appenders.detachAppender(name);
+    }
+
+    /**
+     * Delivers the buffered events to the attached appenders.
+     */
+    private final class Worker extends Thread {
+
+        private volatile boolean idle;
+
+        private long reported;
+
+        private long lastReport;
+
+        void wakeUp() {
+            if (idle) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (isStarted()) {
+                final ILoggingEvent event = buffer.poll();
+                if (event == null) {
+                    reportDiscarded(true);
+                    idle = true;
+                    if (buffer.isEmpty() && isStarted()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                } else {
+                    appenders.appendLoopOnAppenders(event);
+                    reportDiscarded(false);
+                }
+            }
+            // Deliver the remaining events
+            ILoggingEvent event;
+            while ((event = buffer.poll()) != null) {
+                appenders.appendLoopOnAppenders(event);
+            }
+            reportDiscarded(true);
+        }
+
+        private void reportDiscarded(final boolean now) {
+            final long count = discarded.get();
+            if (count == reported) {
+                return;
+            }
+            final long time = System.nanoTime();
+            if (!now && time - lastReport < REPORT_INTERVAL_NANOS) {
+                return;
+            }
+            final LoggingEvent event = new LoggingEvent(
+                    RingBufferAsyncAppender.class.getName(),
+                    ((LoggerContext) getContext()).getLogger(
+                            RingBufferAsyncAppender.class),
+                    Level.WARN,
+                    "Log buffer full - {} log events were discarded",
+                    null, new Object[] { count - reported });
+            reported = count;
+            lastReport = time;
+            appenders.appendLoopOnAppenders(event);
+        }
+
+    }
+
+    /**
+     * Bounded lock-free multiple producer / single consumer ring buffer. Every
+     * slot has a sequence number that tells producers and the consumer whether
+     * the slot is free or filled for the current round.
+     */
+    private static final class RingBuffer {
+
+        private final int mask;
+
+        private final AtomicReferenceArray<ILoggingEvent> slots;
+
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong tail;
+
+        private long head;
+
+        RingBuffer(final int minSize) {
+            int size = 1;
+            while (size < minSize) {
+                size = size << 1;
+            }
+            mask = size - 1;
+            slots = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+            tail = new AtomicLong();
+        }
+
+        boolean offer(final ILoggingEvent event) {
+            long pos = tail.get();
+            while (true) {
+                final int index = (int) (pos & mask);
+                final long diff = sequences.get(index) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots.set(index, event);
+                        sequences.lazySet(index, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        ILoggingEvent poll() {
+            final int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return null;
+            }
+            final ILoggingEvent event = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            return event;
+        }
+
+        boolean isEmpty() {
+            return sequences.get((int) (head & mask)) != head + 1;
+        }
+
+    }
+
+}
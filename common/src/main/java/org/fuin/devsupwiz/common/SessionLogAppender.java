@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.IOException;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Routes log events to the log file of the {@link SetupSession} identified by
+ * the {@link DevSupWizUtils#MDC_SESSION_KEY} MDC value. Events without a
+ * session are ignored.
+ */
+public class SessionLogAppender
+        extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    @Override
+    protected void append(final ILoggingEvent event) {
+        final String id = event.getMDCPropertyMap()
+                .get(DevSupWizUtils.MDC_SESSION_KEY);
+
+        if (id == null) {
+            return;
+        }
+        final SetupSession session = SetupSession.find(id);
+        if (session != null) {
+            try {
+                session.log(event);
+            } catch (final IOException ex) {
+                // Logging must not fail the session
+                addError("Failed to write log of session '" + id + "' to: "
+                        + session.getLogFile(), ex);
+            }
+        }
+    }
+
+}
@@ -56,4 +56,20 @@ public interface SetupController {
      */
     public void refreshStatus();
 
+    /**
+     * Returns a copy of the task that contains the current input of the UI
+     * without saving it to the controller's task. The copy is validated in the
+     * background while the user types, so the method should be fast and must
+     * not return the controller's task itself. An up-to-date result of the
+     * background validation is used instead of calling
+     * {@link #getValidationErrors()}.
+     * 
+     * @return Copy of the task or <code>null</code> if the controller does
+     *         not support background validation or the current input cannot
+     *         be converted.
+     */
+    public default SetupTask snapshot() {
+        return null;
+    }
+
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.enterprise.inject.Vetoed;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many {@link SetupSession}s in one JVM without UI, for example to
+ * execute a number of configurations for the same user. The expensive parts
+ * that do not depend on a configuration are created only once and shared by
+ * all sessions: The index of task classes, the JAXB context (see
+ * {@link ConfigImpl#jaxbContext()}) and the validator with its constraint
+ * metadata. The sessions also share the environment of the JVM (see
+ * {@link SetupSession}), so provisioning different user accounts or
+ * containers requires one process per account or container.
+ */
+@Vetoed
+public final class SetupEngine implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SetupEngine.class);
+
+    private final ValidatorFactory factory;
+
+    private final Validator validator;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor with the number of sessions to execute in parallel.
+     * 
+     * @param parallelism
+     *            Maximum number of sessions executed at the same time.
+     */
+    public SetupEngine(final int parallelism) {
+        super();
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "Parallelism must be at least 1, but was: " + parallelism);
+        }
+        final long start = System.nanoTime();
+        factory = ValidatorProducer.createFactory();
+        validator = factory.getValidator();
+        final int tasks = DevSupWizUtils.findSetupTasksInClasspath().size();
+        ConfigImpl.jaxbContext();
+        LOG.info("Engine with {} task classes ready in {} ms", tasks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        final AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, (runnable) -> {
+            return new Thread(runnable,
+                    "devsupwiz-session-" + threads.incrementAndGet());
+        });
+    }
+
+    /**
+     * Loads a configuration and opens a new session for it. The configuration
+     * is persisted to the same file when tasks were executed.
+     * 
+     * @param id
+     *            Identifier that is unique among all open sessions.
+     * @param configFile
+     *            File with XML configuration.
+     * @param logFile
+     *            File to append the log of the session to.
+     * 
+     * @return New session that must be closed by the caller.
+     */
+    public SetupSession open(@NotEmpty final String id,
+            @NotNull final File configFile, @NotNull final File logFile) {
+
+        return open(id, configFile, logFile, null);
+    }
+
+    /**
+     * Loads a configuration and opens a new session for it that executes the
+     * shell commands with its own runner. Sessions of the same engine can so,
+     * for example, record and replay commands at the same time.
+     * 
+     * @param id
+     *            Identifier that is unique among all open sessions.
+     * @param configFile
+     *            File with XML configuration.
+     * @param logFile
+     *            File to append the log of the session to.
+     * @param runner
+     *            Runner for the shell commands of the session or
+     *            <code>null</code> to use {@link CommandRunners#getDefault()}.
+     * 
+     * @return New session that must be closed by the caller.
+     */
+    public SetupSession open(@NotEmpty final String id,
+            @NotNull final File configFile, @NotNull final File logFile,
+            @Nullable final CommandRunner runner) {
+
+        final ConfigImpl config = ConfigImpl.load(configFile);
+        config.setCommandRunner(runner);
+        try {
+            return new SetupSession(id, config, validator, logFile);
+        } catch (final IOException ex) {
+            throw new RuntimeException("Failed to open log of session '" + id
+                    + "': " + logFile, ex);
+        }
+    }
+
+    /**
+     * Executes a session in the background. At most the number of sessions
+     * given in the constructor are executed at the same time, others are
+     * queued.
+     * 
+     * @param session
+     *            Session to execute.
+     * 
+     * @return Future that completes when all tasks of the session were
+     *         executed or one failed.
+     */
+    public CompletableFuture<Void> submit(@NotNull final SetupSession session) {
+        return CompletableFuture.runAsync(session::execute, executor);
+    }
+
+    /**
+     * Waits for all submitted sessions to finish and releases the shared
+     * resources. Sessions must be closed by the caller.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.info("Waiting for sessions to finish");
+            }
+        } catch (final InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        factory.close();
+    }
+
+}
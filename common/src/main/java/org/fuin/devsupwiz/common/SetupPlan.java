@@ -0,0 +1,419 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotNull;
+import javax.validation.groups.Default;
+
+/**
+ * Predicts what executing a configuration would do without running any
+ * command. For each task the plan contains whether it would be executed or
+ * skipped, the fingerprint of its input, its estimated duration from the
+ * {@link ExecutionHistory} and problems found. The tasks are evaluated in
+ * parallel.
+ */
+public final class SetupPlan {
+
+    /**
+     * What happens with a task.
+     */
+    public enum Action {
+
+        /** Task will be executed. */
+        EXECUTE,
+
+        /** Task was already executed and will be skipped. */
+        SKIP;
+
+    }
+
+    /** Runner bound while a task is evaluated. */
+    private static final CommandRunner NO_COMMANDS = (command, out, err) -> {
+        throw new IllegalStateException(
+                "Plan must not execute commands: " + command);
+
+    };
+
+    private final String name;
+
+    private final List<Step> steps;
+
+    private final List<String> errors;
+
+    private SetupPlan(final String name, final List<Step> steps,
+            final List<String> errors) {
+        super();
+        this.name = name;
+        this.steps = Collections.unmodifiableList(steps);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Creates the plan for a configuration.
+     * 
+     * @param config
+     *            Configuration to plan.
+     * @param validator
+     *            Validator for the task input.
+     * @param history
+     *            History used to estimate the durations.
+     * 
+     * @return New plan.
+     */
+    public static SetupPlan create(@NotNull final Config config,
+            @NotNull final Validator validator,
+            @NotNull final ExecutionHistory history) {
+        final List<SetupTask> tasks = config.getTasks();
+        final List<Step> steps = tasks.parallelStream()
+                .map((task) -> step(task, validator, history))
+                .collect(Collectors.toList());
+        return new SetupPlan(config.getName(), steps, dependencyErrors(tasks));
+    }
+
+    private static Step step(final SetupTask task, final Validator validator,
+            final ExecutionHistory history) {
+        // Make sure nothing is executed by accident
+        final CommandRunner previous = CommandRunners.bind(NO_COMMANDS);
+        try {
+            return evaluate(task, validator, history);
+        } finally {
+            CommandRunners.bind(previous);
+        }
+    }
+
+    private static Step evaluate(final SetupTask task, final Validator validator,
+            final ExecutionHistory history) {
+        final Action action = task.alreadyExecuted() ? Action.SKIP
+                : Action.EXECUTE;
+        final String fingerprint = TaskFingerprint.of(task);
+        final String executedFingerprint = task instanceof AbstractSetupTask
+                ? ((AbstractSetupTask) task).getExecutedFingerprint()
+                : null;
+        final List<String> errors = new ArrayList<>();
+        final List<String> missingInput = new ArrayList<>();
+        if (action == Action.EXECUTE) {
+            // Input marked as 'UserInput' may still be entered in the wizard
+            for (final ConstraintViolation<SetupTask> violation : validator
+                    .validate(task, Default.class)) {
+                errors.add(violation.getPropertyPath() + " "
+                        + violation.getMessage());
+            }
+            final Set<ConstraintViolation<SetupTask>> input = validator
+                    .validate(task, UserInput.class);
+            for (final ConstraintViolation<SetupTask> violation : input) {
+                missingInput.add(violation.getPropertyPath() + " "
+                        + violation.getMessage());
+            }
+        }
+        final boolean changed = action == Action.SKIP
+                && executedFingerprint != null
+                && !executedFingerprint.equals(fingerprint);
+        return new Step(task.getTypeId(), action, fingerprint, changed,
+                action == Action.EXECUTE ? history.estimateMillis(task) : null,
+                errors, missingInput);
+    }
+
+    /**
+     * Verifies that all dependencies exist and are executed before the tasks
+     * that depend on them. The wizard executes the tasks in the order of the
+     * configuration, so a dependency defined later (or a cycle) is an error.
+     */
+    private static List<String> dependencyErrors(final List<SetupTask> tasks) {
+        final Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            positions.putIfAbsent(tasks.get(i).getTypeId(), i);
+        }
+        final List<String> errors = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            final SetupTask task = tasks.get(i);
+            for (final String dependency : task.getDependencies()) {
+                final Integer position = positions.get(dependency);
+                if (position == null) {
+                    errors.add("Task '" + task.getTypeId()
+                            + "' depends on unknown task '" + dependency
+                            + "'");
+                } else if (position >= i) {
+                    errors.add("Task '" + task.getTypeId() + "' depends on '"
+                            + dependency
+                            + "', which is not defined before it");
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the name of the configuration.
+     * 
+     * @return Name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the steps in the order of execution.
+     * 
+     * @return Immutable list with one step per task.
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns errors that concern the configuration as a whole, like missing
+     * dependencies.
+     * 
+     * @return Immutable list of messages.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Determines if the configuration can be executed.
+     * 
+     * @return <code>true</code> if neither the plan nor any step has errors.
+     */
+    public boolean isValid() {
+        if (!errors.isEmpty()) {
+            return false;
+        }
+        for (final Step step : steps) {
+            if (!step.getErrors().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the estimated duration of all steps that will be executed.
+     * Steps without estimate are not included.
+     * 
+     * @return Duration in milliseconds.
+     */
+    public long getEstimatedMillis() {
+        long millis = 0;
+        for (final Step step : steps) {
+            if (step.getEstimatedMillis() != null) {
+                millis = millis + step.getEstimatedMillis();
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * Returns a human readable report.
+     * 
+     * @return Multi line text.
+     */
+    public String report() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Plan for '").append(name).append("'\n");
+        int execute = 0;
+        int unknown = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            final Step step = steps.get(i);
+            if (step.getAction() == Action.EXECUTE) {
+                execute++;
+                if (step.getEstimatedMillis() == null) {
+                    unknown++;
+                }
+            }
+            sb.append(String.format(Locale.ROOT, "%3d. %-7s %-40s %s %10s",
+                    i + 1, step.getAction(), step.getTypeId(),
+                    step.getFingerprint(),
+                    step.getAction() == Action.SKIP ? "-"
+                            : duration(step.getEstimatedMillis())));
+            if (step.isChangedSinceExecution()) {
+                sb.append("  (input changed since execution)");
+            }
+            sb.append('\n');
+            for (final String error : step.getErrors()) {
+                sb.append("       ERROR: ").append(error).append('\n');
+            }
+            for (final String input : step.getMissingInput()) {
+                sb.append("       INPUT: ").append(input).append('\n');
+            }
+        }
+        for (final String error : errors) {
+            sb.append("ERROR: ").append(error).append('\n');
+        }
+        sb.append(execute).append(" of ").append(steps.size())
+                .append(" tasks will be executed, estimated ")
+                .append(duration(getEstimatedMillis()));
+        if (unknown > 0) {
+            sb.append(" (").append(unknown).append(" without estimate)");
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    private static String duration(final Long millis) {
+        if (millis == null) {
+            return "?";
+        }
+        return DevSupWizUtils.formatDuration(millis);
+    }
+
+    /**
+     * Prints the plans of one or more configuration files and exits with 1 if
+     * a plan is not valid. No command is executed.
+     * 
+     * @param args
+     *            Configuration files.
+     */
+    public static void main(final String[] args) {
+        if (args.length == 0) {
+            System.err.println(
+                    "Usage: SetupPlan <config-file> [<config-file> ...]");
+            System.exit(2);
+        }
+        boolean valid = true;
+        final ValidatorFactory factory = ValidatorProducer.createFactory();
+        try {
+            final Validator validator = factory.getValidator();
+            for (final String arg : args) {
+                final SetupPlan plan = create(ConfigImpl.load(new File(arg)),
+                        validator, ExecutionHistory.getDefault());
+                System.out.print(plan.report());
+                valid = valid && plan.isValid();
+            }
+        } finally {
+            factory.close();
+        }
+        System.exit(valid ? 0 : 1);
+    }
+
+    /**
+     * Planned execution of a single task.
+     */
+    public static final class Step {
+
+        private final String typeId;
+
+        private final Action action;
+
+        private final String fingerprint;
+
+        private final boolean changedSinceExecution;
+
+        private final Long estimatedMillis;
+
+        private final List<String> errors;
+
+        private final List<String> missingInput;
+
+        Step(final String typeId, final Action action, final String fingerprint,
+                final boolean changedSinceExecution, final Long estimatedMillis,
+                final List<String> errors, final List<String> missingInput) {
+
+            super();
+            this.typeId = typeId;
+            this.action = action;
+            this.fingerprint = fingerprint;
+            this.changedSinceExecution = changedSinceExecution;
+            this.estimatedMillis = estimatedMillis;
+            this.errors = Collections.unmodifiableList(errors);
+            this.missingInput = Collections.unmodifiableList(missingInput);
+        }
+
+        /**
+         * Returns the task.
+         * 
+         * @return Value of {@link SetupTask#getTypeId()}.
+         */
+        public String getTypeId() {
+            return typeId;
+        }
+
+        /**
+         * Returns what will happen with the task.
+         * 
+         * @return Action.
+         */
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * Returns the fingerprint of the task's current input.
+         * 
+         * @return Value of {@link TaskFingerprint#of(SetupTask)}.
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Determines if an executed task's input was changed after it was
+         * executed. The task is skipped nevertheless.
+         * 
+         * @return <code>true</code> if the fingerprints differ.
+         */
+        public boolean isChangedSinceExecution() {
+            return changedSinceExecution;
+        }
+
+        /**
+         * Returns the estimated duration.
+         * 
+         * @return Milliseconds or <code>null</code> if the task is skipped or
+         *         there is no history.
+         */
+        @Nullable
+        public Long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+
+        /**
+         * Returns errors in the configuration of the task.
+         * 
+         * @return Immutable list of messages.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns input that must still be entered in the wizard.
+         * 
+         * @return Immutable list of messages.
+         */
+        public List<String> getMissingInput() {
+            return missingInput;
+        }
+
+    }
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.inject.Vetoed;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.groups.Default;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+
+/**
+ * Runs the tasks of one configuration without UI. A session has its own
+ * configuration, task state and log file. Everything that does not depend on
+ * the configuration (task classes, JAXB context and validator) is shared with
+ * all other sessions of the {@link SetupEngine} that opened it. Log events
+ * created by the session's thread (or by a {@link LogOutputStream} created in
+ * it) carry the {@link DevSupWizUtils#MDC_SESSION_KEY} MDC value and are
+ * written to the session's log file by the {@link SessionLogAppender}.<br>
+ * <br>
+ * Sessions are <b>not</b> isolated from the machine they run on: All sessions
+ * of a JVM share the cached {@link SystemFacts}, the user's home directory
+ * (<code>user.home</code>) the tasks write to and the default
+ * {@link ExecutionHistory}. Sessions that set up different users or change
+ * the same files must run in separate processes.
+ */
+@Vetoed
+public final class SetupSession implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SetupSession.class);
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private static final ConcurrentMap<String, SetupSession> SESSIONS =
+            new ConcurrentHashMap<>();
+
+    private final String id;
+
+    private final ConfigImpl config;
+
+    private final Validator validator;
+
+    private final File logFile;
+
+    private final Writer log;
+
+    private final SimpleDateFormat timeFormat;
+
+    /**
+     * Constructor with all data. Registers the session, so the identifier
+     * must not be used by another open session.
+     * 
+     * @param id
+     *            Unique identifier of the session.
+     * @param config
+     *            Configuration of the session.
+     * @param validator
+     *            Shared validator.
+     * @param logFile
+     *            File to append the log of the session to.
+     * 
+     * @throws IOException
+     *             Error opening the log file.
+     */
+    SetupSession(@NotEmpty final String id, @NotNull final ConfigImpl config,
+            @NotNull final Validator validator, @NotNull final File logFile)
+            throws IOException {
+        super();
+        this.id = id;
+        this.config = config;
+        this.validator = validator;
+        this.logFile = logFile;
+        this.timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        if (SESSIONS.putIfAbsent(id, this) != null) {
+            throw new IllegalArgumentException(
+                    "There is already an open session with id: " + id);
+        }
+        try {
+            this.log = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(logFile, true), UTF8));
+        } catch (final IOException ex) {
+            SESSIONS.remove(id);
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the unique identifier.
+     * 
+     * @return Identifier.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the configuration.
+     * 
+     * @return Configuration with the current task state.
+     */
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the log file.
+     * 
+     * @return File the log of the session is appended to.
+     */
+    public File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Validates all tasks that were not executed yet.
+     * 
+     * @return Messages prefixed with the task's type ID or an empty list if all
+     *         tasks are valid.
+     */
+    public List<String> validate() {
+        final List<String> messages = new ArrayList<>();
+        for (final SetupTask task : config.getTasks()) {
+            if (!task.alreadyExecuted()) {
+                final Set<ConstraintViolation<Object>> violations = validator
+                        .validate(task, Default.class, UserInput.class);
+                for (final ConstraintViolation<Object> violation : violations) {
+                    messages.add(task.getTypeId() + ": "
+                            + violation.getMessage());
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Creates the plan for the remaining tasks without executing anything.
+     * 
+     * @return Plan of the session's configuration.
+     */
+    public SetupPlan plan() {
+        return SetupPlan.create(config, validator, ExecutionHistory.getDefault());
+    }
+
+    /**
+     * Executes all tasks of the configuration in the order they are defined
+     * and skips those already executed. Stops at the first task that fails.
+     * The configuration must be valid.
+     */
+    public void execute() {
+        MDC.put(DevSupWizUtils.MDC_SESSION_KEY, id);
+        final CommandRunner previous = CommandRunners
+                .bind(config.getCommandRunner());
+        try {
+            final List<String> messages = validate();
+            if (!messages.isEmpty()) {
+                throw new IllegalStateException(
+                        "Session '" + id + "' is invalid: " + messages);
+            }
+            LOG.info("Executing session '{}' with {} tasks", id,
+                    config.getTasks().size());
+            for (final SetupTask task : config.getTasks()) {
+                execute(task);
+            }
+            LOG.info("Session '{}' successfully executed", id);
+        } catch (final RuntimeException ex) {
+            LOG.error("Session '" + id + "' failed", ex);
+            throw ex;
+        } finally {
+            CommandRunners.bind(previous);
+            MDC.remove(DevSupWizUtils.MDC_SESSION_KEY);
+            config.flush();
+            flush();
+        }
+    }
+
+    private void flush() {
+        synchronized (log) {
+            try {
+                log.flush();
+            } catch (final IOException ex) {
+                LOG.warn("Failed to flush log of session '" + id + "': "
+                        + logFile, ex);
+            }
+        }
+    }
+
+    private void execute(final SetupTask task) {
+        MDC.put(DevSupWizUtils.MDC_TASK_KEY, task.getTypeId());
+        try {
+            TaskExecution.execute(task, config.getCommandRunner());
+        } finally {
+            MDC.remove(DevSupWizUtils.MDC_TASK_KEY);
+        }
+    }
+
+    /**
+     * Appends a log event to the log file. May be called from any thread.
+     * 
+     * @param event
+     *            Event to append.
+     * 
+     * @throws IOException
+     *             Error writing the log file.
+     */
+    void log(@NotNull final ILoggingEvent event) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        synchronized (log) {
+            sb.append(timeFormat.format(new Date(event.getTimeStamp())));
+            sb.append(' ').append(String.format("%-5s", event.getLevel()));
+            final String task = event.getMDCPropertyMap()
+                    .get(DevSupWizUtils.MDC_TASK_KEY);
+            if (task != null) {
+                sb.append(" [").append(task).append(']');
+            }
+            sb.append(' ').append(event.getFormattedMessage())
+                    .append(System.lineSeparator());
+            final IThrowableProxy throwable = event.getThrowableProxy();
+            if (throwable != null) {
+                sb.append(ThrowableProxyUtil.asString(throwable))
+                        .append(System.lineSeparator());
+            }
+            log.write(sb.toString());
+        }
+    }
+
+    /**
+     * Unregisters the session and closes the log file.
+     */
+    @Override
+    public void close() {
+        SESSIONS.remove(id, this);
+        ProgressSamplingFilter.sessionClosed(id);
+        synchronized (log) {
+            try {
+                log.close();
+            } catch (final IOException ex) {
+                LOG.warn("Failed to close log of session '" + id + "': "
+                        + logFile, ex);
+
+            }
+        }
+    }
+
+    /**
+     * Returns an open session.
+     * 
+     * @param id
+     *            Identifier of the session.
+     * 
+     * @return Session or <code>null</code> if there is no open session with
+     *         that identifier.
+     */
+    static SetupSession find(@NotNull final String id) {
+        return SESSIONS.get(id);
+    }
+
+}
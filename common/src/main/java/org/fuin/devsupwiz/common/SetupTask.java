@@ -17,6 +17,9 @@
  */
 package org.fuin.devsupwiz.common;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Task to create or update some kind of setup. Every task is required to
  * implement equals and hash code based on the {@link #getTypeId()} method.
@@ -85,4 +88,29 @@ public interface SetupTask {
      */
     public void success();
 
+    /**
+     * Returns the tasks that must be executed before this one.
+     * 
+     * @return Values of {@link #getTypeId()} of other tasks in the same
+     *         configuration.
+     */
+    public default List<String> getDependencies() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Determines if the wizard must execute all tasks before this one until
+     * it shows the task's page. Tasks that do not need the results of earlier
+     * tasks may return <code>false</code>, so the user can already fill in
+     * their page while earlier tasks are executed in the background. The page
+     * then only waits for the tasks in {@link #getDependencies()}.
+     * 
+     * @return <code>true</code> (default) if the page waits for all previous
+     *         tasks or <code>false</code> if it only waits for the
+     *         dependencies.
+     */
+    public default boolean waitsForPreviousTasks() {
+        return true;
+    }
+
 }
@@ -18,21 +18,21 @@
 package org.fuin.devsupwiz.common;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.DefaultExecutor;
-import org.apache.commons.exec.ExecuteWatchdog;
-import org.apache.commons.exec.PumpStreamHandler;
-import org.apache.commons.exec.ShutdownHookProcessDestroyer;
-import org.apache.commons.exec.environment.EnvironmentUtils;
 import org.fuin.utils4j.Utils4J;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 /**
  * Executes a shell command.
@@ -45,6 +45,21 @@ import org.fuin.utils4j.Utils4J;
  */
 public final class ShellCommandExecutor {
 
+    /**
+     * System property that disables timeouts derived from the
+     * {@link ExecutionHistory} if set to <code>false</code>. If set to
+     * {@value #SHORTEN_TIMEOUTS} derived timeouts may also be shorter than
+     * the one passed to the constructor.
+     */
+    public static final String ADAPTIVE_TIMEOUTS_PROPERTY =
+            "devsupwiz.adaptive-timeouts";
+
+    /** Value of {@link #ADAPTIVE_TIMEOUTS_PROPERTY} to allow shorter timeouts. */
+    public static final String SHORTEN_TIMEOUTS = "shorten";
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ShellCommandExecutor.class);
+
     private final String pw;
 
     private final String cmd;
@@ -163,42 +178,89 @@ public final class ShellCommandExecutor {
     }
 
     /**
-     * Executes the command.
+     * Executes the command with the runner of the current thread (see
+     * {@link CommandRunners#get()}).
      * 
      * @return Exit code.
      */
     public final int execute() {
+        return execute(CommandRunners.get());
+    }
 
+    /**
+     * Executes the command with the given runner.
+     * 
+     * @param runner
+     *            Runner to use.
+     * 
+     * @return Exit code.
+     */
+    public final int execute(@NotNull final CommandRunner runner) {
+        final String typeId = MDC.get(DevSupWizUtils.MDC_TASK_KEY);
+        final String step = step(Command.key(pw != null, cmd, workingDir));
+        final Command command = new Command(pw, cmd,
+                timeoutSeconds(typeId, step), env, workingDir);
+        final long start = System.nanoTime();
+        final int exitCode;
         try {
+            exitCode = runner.run(command, out, err);
+        } finally {
+            LatencyHistograms
+                    .get(LatencyHistograms.key(ShellCommandExecutor.class,
+                            "execute"))
+                    .record(System.nanoTime() - start);
 
-            final Map<String, String> envMap = EnvironmentUtils
-                    .getProcEnvironment();
-            envMap.put("DEBIAN_FRONTEND", "noninteractive");
-            envMap.putAll(env);
-
-            final CommandLine command = new CommandLine("/bin/sh");
-            final String cmdStr = createSubCmd();
-            command.addArguments(new String[] { "-c", cmdStr }, false);
-
-            final DefaultExecutor executor = new DefaultExecutor();
-            executor.setStreamHandler(new PumpStreamHandler(out, err));
-            executor.setWorkingDirectory(workingDir);
-            executor.setProcessDestroyer(new ShutdownHookProcessDestroyer());
-            executor.setWatchdog(new ExecuteWatchdog(timeoutSeconds * 1000));
-
-            return executor.execute(command, envMap);
+        }
+        if (typeId != null && runner.executesCommands()) {
+            ExecutionHistory.getDefault().record(typeId, null, step,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return exitCode;
+    }
 
-        } catch (final IOException ex) {
+    /**
+     * Returns the name of the command in the {@link ExecutionHistory}. The
+     * history is a plain text file, so it contains only a hash of the command
+     * line.
+     */
+    private static String step(final String key) {
+        final byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(Charset.forName("utf-8")));
+        } catch (final NoSuchAlgorithmException ex) {
             throw new RuntimeException(ex);
         }
-
+        final StringBuilder sb = new StringBuilder(
+                ExecutionHistory.COMMAND_STEP_PREFIX);
+        for (int i = 0; i < 16; i++) {
+            sb.append(String.format("%02x", hash[i] & 0xFF));
+        }
+        return sb.toString();
     }
 
-    private String createSubCmd() {
-        if (pw == null) {
-            return cmd;
+    /**
+     * Derives the timeout from previous executions of the same command by the
+     * same task. Falls back to the timeout passed to the constructor if there
+     * is not enough history or adaptive timeouts are disabled. The derived
+     * timeout is only shorter than the one passed to the constructor if this
+     * was enabled with {@value #SHORTEN_TIMEOUTS}.
+     */
+    private long timeoutSeconds(final String typeId, final String step) {
+        final String adaptive = System.getProperty(ADAPTIVE_TIMEOUTS_PROPERTY);
+        if (typeId == null || "false".equals(adaptive)) {
+            return timeoutSeconds;
+        }
+        final long millis = ExecutionHistory.getDefault().timeoutMillis(typeId,
+                step, TimeUnit.SECONDS.toMillis(timeoutSeconds),
+                SHORTEN_TIMEOUTS.equals(adaptive));
+        final long seconds = (millis + 999) / 1000;
+        if (seconds != timeoutSeconds) {
+            LOG.debug("Using timeout of {}s instead of {}s based on previous "
+                    + "executions", seconds, timeoutSeconds);
+
         }
-        return "echo " + pw + " | sudo -S " + cmd;
+        return seconds;
     }
 
 }
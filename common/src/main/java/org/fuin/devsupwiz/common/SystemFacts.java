@@ -0,0 +1,406 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotEmpty;
+
+import org.fuin.utils4j.Utils4J;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Provides information about the local machine. Facts are read from
+ * <code>/proc</code>, <code>/etc</code> and the JDK where possible and only
+ * once. A shell command is only executed if there is no other way. The facts
+ * are invalidated after every executed setup task, because it may have changed
+ * the system (for example installed a tool or set the host name).
+ */
+public final class SystemFacts {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SystemFacts.class);
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private static final SystemFacts INSTANCE = new SystemFacts();
+
+    private final Fact<String> hostname;
+
+    private final Fact<Map<String, String>> osRelease;
+
+    private final Fact<Long> memoryBytes;
+
+    private final ConcurrentMap<String, Optional<File>> tools;
+
+    private final ConcurrentMap<String, Optional<String>> toolVersions;
+
+    private SystemFacts() {
+        super();
+        hostname = new Fact<>(SystemFacts::readHostname);
+        osRelease = new Fact<>(SystemFacts::readOsRelease);
+        memoryBytes = new Fact<>(SystemFacts::readMemoryBytes);
+        tools = new ConcurrentHashMap<>();
+        toolVersions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the only instance.
+     * 
+     * @return Shared instance.
+     */
+    public static SystemFacts getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the most common facts in parallel in the background, so later
+     * calls will not have to wait.
+     * 
+     * @return Future that completes when all facts are read.
+     */
+    public CompletableFuture<Void> prefetch() {
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(hostname::get),
+                CompletableFuture.runAsync(osRelease::get),
+                CompletableFuture.runAsync(memoryBytes::get));
+    }
+
+    /**
+     * Forgets all facts, so they are read again on the next access.
+     */
+    public void invalidate() {
+        hostname.invalidate();
+        osRelease.invalidate();
+        memoryBytes.invalidate();
+        tools.clear();
+        toolVersions.clear();
+    }
+
+    /**
+     * Returns the host name.
+     * 
+     * @return Host name.
+     */
+    public String getHostname() {
+        return hostname.get();
+    }
+
+    /**
+     * Returns the name of the user running the application.
+     * 
+     * @return User name.
+     */
+    public String getUser() {
+        return System.getProperty("user.name");
+    }
+
+    /**
+     * Returns the home directory of the user running the application.
+     * 
+     * @return Home directory.
+     */
+    public File getHome() {
+        return Utils4J.getUserHomeDir();
+    }
+
+    /**
+     * Returns the content of <code>/etc/os-release</code>.
+     * 
+     * @return Unmodifiable map with keys like "ID", "VERSION_ID" or
+     *         "PRETTY_NAME". Empty map if the file does not exist.
+     */
+    public Map<String, String> getOsRelease() {
+        return osRelease.get();
+    }
+
+    /**
+     * Returns a human readable name of the operating system.
+     * 
+     * @return Pretty name from <code>/etc/os-release</code> or the name from
+     *         the JDK.
+     */
+    public String getOsName() {
+        final String name = getOsRelease().get("PRETTY_NAME");
+        if (name == null) {
+            return System.getProperty("os.name") + " "
+                    + System.getProperty("os.version");
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of processors available to the JVM.
+     * 
+     * @return CPU count.
+     */
+    public int getCpuCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the total amount of physical memory.
+     * 
+     * @return Memory in bytes or <code>-1</code> if unknown.
+     */
+    public long getMemoryBytes() {
+        return memoryBytes.get();
+    }
+
+    /**
+     * Returns a short description of the hardware that is used to compare
+     * durations measured on different machines. Memory is rounded to full
+     * gigabytes.
+     * 
+     * @return Profile like "4cpu-16gb".
+     */
+    public String getMachineProfile() {
+        final long bytes = getMemoryBytes();
+        final String memory = bytes < 0 ? "unknown"
+                : Math.round(bytes / (1024.0 * 1024.0 * 1024.0)) + "gb";
+
+        return getCpuCount() + "cpu-" + memory;
+    }
+
+    /**
+     * Locates an executable on the <code>PATH</code>.
+     * 
+     * @param name
+     *            Name of the executable like "git".
+     * 
+     * @return Executable file or <code>null</code> if the tool is not
+     *         installed.
+     */
+    @Nullable
+    public File findTool(@NotEmpty final String name) {
+        return tools.computeIfAbsent(name, SystemFacts::locate).orElse(null);
+    }
+
+    /**
+     * Determines if an executable is available on the <code>PATH</code>.
+     * 
+     * @param name
+     *            Name of the executable like "git".
+     * 
+     * @return <code>true</code> if the tool is installed.
+     */
+    public boolean hasTool(@NotEmpty final String name) {
+        return findTool(name) != null;
+    }
+
+    /**
+     * Returns the version of a tool. The first non-empty line printed by
+     * "&lt;tool&gt; --version" is read once and cached.
+     * 
+     * @param name
+     *            Name of the executable like "git".
+     * 
+     * @return Version line or <code>null</code> if the tool is not installed
+     *         or does not print a version.
+     */
+    @Nullable
+    public String getToolVersion(@NotEmpty final String name) {
+        final File tool = findTool(name);
+        if (tool == null) {
+            return null;
+        }
+        return toolVersions.computeIfAbsent(name, (n) -> probeVersion(tool))
+                .orElse(null);
+    }
+
+    private static String readHostname() {
+        final String name = readFirstLine(new File("/proc/sys/kernel/hostname"));
+        if (name != null) {
+            return name;
+        }
+        return shellHostname();
+    }
+
+    private static String shellHostname() {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ShellCommandExecutor executor = new ShellCommandExecutor(
+                "hostname", 5, new HashMap<String, String>(), bos,
+                new LogOutputStream(Level.ERROR));
+        final int result = executor.execute();
+        final String text = new String(bos.toByteArray());
+        if (result == 0) {
+            return text.trim();
+        } else {
+            throw new RuntimeException(
+                    "Error # " + result + " reading hostname: " + text);
+        }
+    }
+
+    private static Map<String, String> readOsRelease() {
+        final File file = new File("/etc/os-release");
+        if (!file.exists()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (final String line : readLines(file)) {
+            final int p = line.indexOf('=');
+            if (p > 0 && !line.startsWith("#")) {
+                map.put(line.substring(0, p).trim(),
+                        unquote(line.substring(p + 1).trim()));
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static Long readMemoryBytes() {
+        final File file = new File("/proc/meminfo");
+        if (file.exists()) {
+            for (final String line : readLines(file)) {
+                if (line.startsWith("MemTotal:")) {
+                    final String kb = line.substring("MemTotal:".length())
+                            .replace("kB", "").trim();
+                    try {
+                        return Long.parseLong(kb) * 1024;
+                    } catch (final NumberFormatException ex) {
+                        LOG.warn("Unexpected format in {}: {}", file, line);
+                    }
+                }
+            }
+        }
+        return -1L;
+    }
+
+    private static Optional<File> locate(final String name) {
+        final String path = System.getenv("PATH");
+        if (path != null) {
+            for (final String dir : path.split(File.pathSeparator)) {
+                if (!dir.isEmpty()) {
+                    final File file = new File(dir, name);
+                    if (file.isFile() && file.canExecute()) {
+                        return Optional.of(file);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> probeVersion(final File tool) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            // Some tools (like 'java') print the version to stderr
+            new ShellCommandExecutor(quote(tool.getPath()) + " --version 2>&1",
+                    10, new HashMap<String, String>(), bos,
+                    new LogOutputStream(Level.DEBUG)).execute();
+        } catch (final RuntimeException ex) {
+            LOG.debug("Failed to read version of: {}", tool, ex);
+            return Optional.empty();
+        }
+        for (final String line : new String(bos.toByteArray(), UTF8)
+                .split("\n")) {
+
+            if (!line.trim().isEmpty()) {
+                return Optional.of(line.trim());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Quotes a value as a single argument for the shell.
+     */
+    private static String quote(final String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static String readFirstLine(final File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        final List<String> lines = readLines(file);
+        if (lines.isEmpty() || lines.get(0).trim().isEmpty()) {
+            return null;
+        }
+        return lines.get(0).trim();
+    }
+
+    private static List<String> readLines(final File file) {
+        try {
+            return Files.readAllLines(file.toPath(), UTF8);
+        } catch (final IOException ex) {
+            throw new RuntimeException("Error reading: " + file, ex);
+        }
+    }
+
+    private static String unquote(final String value) {
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"")
+                || value.startsWith("'") && value.endsWith("'"))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Lazily read value that is kept until it is invalidated.
+     * 
+     * @param <T>
+     *            Type of value.
+     */
+    private static final class Fact<T> {
+
+        private final Supplier<T> supplier;
+
+        private volatile T value;
+
+        Fact(final Supplier<T> supplier) {
+            super();
+            this.supplier = supplier;
+        }
+
+        T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = supplier.get();
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        synchronized void invalidate() {
+            value = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes a single task the same way for the wizard and for sessions: Skips
+ * tasks that were already executed, times the execution, records it in the
+ * {@link ExecutionHistory}, saves the history and counts the outcome in the
+ * {@link Metrics}.
+ */
+public final class TaskExecution {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TaskExecution.class);
+
+    private TaskExecution() {
+    }
+
+    /**
+     * Executes the task if it was not executed yet and marks it as
+     * successfully executed afterwards. The caller is responsible for
+     * validating the task and for setting the MDC values.
+     * 
+     * @param task
+     *            Task to execute.
+     * @param runner
+     *            Runner the task's commands are executed with. The duration
+     *            is only recorded if the runner really executes commands.
+     * 
+     * @return <code>true</code> if the task was executed or
+     *         <code>false</code> if it was skipped.
+     */
+    public static boolean execute(@NotNull final SetupTask task,
+            @NotNull final CommandRunner runner) {
+        if (task.alreadyExecuted()) {
+            Metrics.TASKS_SKIPPED.increment();
+            LOG.info("Task already executed: {}", task.getTypeId());
+            return false;
+        }
+        try {
+            // Tasks are no CDI beans, so time them explicitly
+            final long start = System.nanoTime();
+            try {
+                task.execute();
+            } finally {
+                LatencyHistograms
+                        .get(LatencyHistograms.key(task.getClass(),
+                                "execute"))
+                        .record(System.nanoTime() - start);
+                // The task may have changed the system
+                SystemFacts.getInstance().invalidate();
+            }
+            if (runner.executesCommands()) {
+                ExecutionHistory.getDefault().record(task, TimeUnit.NANOSECONDS
+                        .toMillis(System.nanoTime() - start));
+            }
+            task.success();
+        } catch (final Throwable ex) {
+            Metrics.TASKS_FAILED.increment();
+            throw ex;
+        } finally {
+            // Write the durations of the task, its steps and commands at once
+            ExecutionHistory.getDefault().flush();
+        }
+        Metrics.TASKS_EXECUTED.increment();
+        LOG.info("Task successfully executed: {}", task.getTypeId());
+        return true;
+    }
+
+}
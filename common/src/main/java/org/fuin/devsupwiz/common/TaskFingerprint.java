@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Creates a fingerprint of the input of a task. The fingerprint is a hash of
+ * the task's XML without the state attributes and checkpoints written by
+ * {@link AbstractSetupTask}, so it only changes if the configuration of the
+ * task changes. The state is only removed from the task's own element: Nested
+ * elements and attributes with the same names belong to the input.
+ */
+public final class TaskFingerprint {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    /** Attributes of the task element written by {@link AbstractSetupTask}. */
+    private static final Set<String> STATE_ATTRIBUTES = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("executed",
+                    "fingerprint", "checkpoint-fingerprint")));
+
+    /** Child element of the task element written by {@link AbstractSetupTask}. */
+    private static final String CHECKPOINT = "checkpoint";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Number of bytes of the hash to use. */
+    private static final int LENGTH = 8;
+
+    private TaskFingerprint() {
+    }
+
+    /**
+     * Creates the fingerprint of a task.
+     * 
+     * @param task
+     *            Task that is known by {@link ConfigImpl#jaxbContext()}.
+     * 
+     * @return Hex string.
+     */
+    public static String of(@NotNull final SetupTask task) {
+        final Digest digest = new Digest(task instanceof AbstractSetupTask);
+        try {
+            final Marshaller marshaller = ConfigImpl.jaxbContext()
+                    .createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            marshaller.marshal(task, digest);
+        } catch (final JAXBException ex) {
+            throw new RuntimeException(
+                    "Failed to create XML for task: " + task.getTypeId(), ex);
+        }
+        final byte[] hash = digest.hash();
+        final char[] chars = new char[LENGTH * 2];
+        for (int i = 0; i < LENGTH; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Hashes the SAX events of the marshalled task and skips the state of
+     * {@link AbstractSetupTask} on the first level.
+     */
+    private static final class Digest extends DefaultHandler {
+
+        private final MessageDigest md;
+
+        private final boolean stateless;
+
+        private final StringBuilder sb;
+
+        private int depth;
+
+        /** Depth of the skipped element or 0 if no element is skipped. */
+        private int skipped;
+
+        Digest(final boolean stateless) {
+            super();
+            try {
+                this.md = MessageDigest.getInstance("SHA-256");
+            } catch (final NoSuchAlgorithmException ex) {
+                throw new RuntimeException(ex);
+            }
+            this.stateless = stateless;
+            this.sb = new StringBuilder();
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName,
+                final String qName, final Attributes attributes) {
+            depth++;
+            if (skipped > 0) {
+                return;
+            }
+            if (stateless && depth == 2 && uri.isEmpty()
+                    && CHECKPOINT.equals(localName)) {
+                skipped = depth;
+                return;
+            }
+            sb.append('<').append(uri).append(' ').append(localName);
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final String attrUri = attributes.getURI(i);
+                final String attrName = attributes.getLocalName(i);
+                if (stateless && depth == 1 && attrUri.isEmpty()
+                        && STATE_ATTRIBUTES.contains(attrName)) {
+                    continue;
+                }
+                sb.append(' ').append(attrUri).append(' ').append(attrName)
+                        .append("=\"");
+
+                escape(attributes.getValue(i));
+                sb.append('"');
+            }
+            sb.append('>');
+            update();
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName,
+                final String qName) {
+            if (skipped == depth) {
+                skipped = 0;
+            } else if (skipped == 0) {
+                sb.append("</>");
+                update();
+            }
+            depth--;
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start,
+                final int length) {
+            if (skipped == 0) {
+                escape(new String(ch, start, length));
+                update();
+            }
+        }
+
+        private void escape(final String str) {
+            for (int i = 0; i < str.length(); i++) {
+                final char c = str.charAt(i);
+                if (c == '<' || c == '"' || c == '&') {
+                    sb.append('&').append((int) c).append(';');
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private void update() {
+            md.update(sb.toString().getBytes(UTF8));
+            sb.setLength(0);
+        }
+
+        byte[] hash() {
+            return md.digest();
+        }
+
+    }
+
+}
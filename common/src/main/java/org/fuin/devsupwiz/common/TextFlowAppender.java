@@ -17,61 +17,16 @@
  */
 package org.fuin.devsupwiz.common;
 
-import ch.qos.logback.classic.Level;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
-import javafx.scene.paint.Color;
-import javafx.scene.text.TextFlow;
-
 /**
- * Appends log events to a JavaFX text flow.
+ * Appends log events to the log view.
  * 
  * @param <E>
  *            Event type.
+ * 
+ * @deprecated Only kept for existing "dev-setup-wizard-logback.xml" files - Use
+ *             {@link LogViewAppender} instead.
  */
-public final class TextFlowAppender<E> extends OutputStreamAppender<E> {
-
-    private TextFlowOutputStream targetStream;
-
-    private TextFlow textFlow;
-
-    /**
-     * Default constructor.
-     */
-    public TextFlowAppender() {
-        super();
-        textFlow = new TextFlow();
-    }
-    
-    /**
-     * Returns the text flow that is used to append log messages.
-     * 
-     * @return Text flow.
-     */
-    public TextFlow getTextFlow() {
-        return textFlow;
-    }
-
-    @Override
-    public void start() {
-        targetStream = new TextFlowOutputStream(textFlow, Color.BLACK);
-        setOutputStream(targetStream);
-        super.start();
-    }
-
-    @Override
-    protected void subAppend(final E event) {
-        if (event instanceof ILoggingEvent) {
-            final ILoggingEvent ev = (ILoggingEvent) event;
-            if (ev.getLevel() == Level.WARN) {
-                targetStream.setColor(Color.DARKORANGE);
-            } else if (ev.getLevel() == Level.ERROR) {
-                targetStream.setColor(Color.RED);
-            } else {
-                targetStream.setColor(Color.BLACK);
-            }
-        }
-        super.subAppend(event);
-    }
+@Deprecated
+public final class TextFlowAppender<E> extends LogViewAppender<E> {
 
 }
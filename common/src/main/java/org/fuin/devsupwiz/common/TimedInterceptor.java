@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Records the latency of all method calls annotated with the {@link Timed}
+ * annotation. The histograms are registered in {@link LatencyHistograms}
+ * using the simple name of the declaring class and the method name as key.
+ */
+@Interceptor
+@Timed
+public final class TimedInterceptor extends AbstractInterceptor {
+
+    private static final ConcurrentMap<Method, LatencyHistogram> HISTOGRAMS =
+            new ConcurrentHashMap<>();
+
+    @AroundInvoke
+    public final Object timeMethod(final InvocationContext ctx) throws Exception {
+        final LatencyHistogram histogram = histogram(ctx.getMethod());
+        final long start = System.nanoTime();
+        try {
+            return ctx.proceed();
+        } finally {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    private static LatencyHistogram histogram(final Method method) {
+        final LatencyHistogram histogram = HISTOGRAMS.get(method);
+        if (histogram != null) {
+            return histogram;
+        }
+        return HISTOGRAMS.computeIfAbsent(method,
+                (m) -> LatencyHistograms.get(LatencyHistograms
+                        .key(m.getDeclaringClass(), m.getName())));
+
+    }
+
+}
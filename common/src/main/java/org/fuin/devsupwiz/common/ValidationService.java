@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.Validator;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.groups.Default;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates setup tasks in the background. Requests for the same key are
+ * debounced, so only the latest snapshot is validated once the input did not
+ * change for a short time. The result of the latest validation is kept per
+ * key.
+ */
+@ApplicationScoped
+public class ValidationService {
+
+    /** Default time to wait for further changes before validating. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ValidationService.class);
+
+    @Inject
+    private Validator validator;
+
+    private ScheduledExecutorService executor;
+
+    private Map<String, State> states;
+
+    /**
+     * Initializes the service.
+     */
+    @PostConstruct
+    public void init() {
+        states = new ConcurrentHashMap<>();
+        executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            final Thread thread = new Thread(runnable, "devsupwiz-validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the background validation.
+     */
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Validates a task snapshot in the background. A pending validation for
+     * the same key is cancelled.
+     * 
+     * @param key
+     *            Unique key of the task (Usually the type identifier).
+     * @param snapshot
+     *            Copy of the task with the current input. Must not be changed
+     *            after calling this method.
+     * @param callback
+     *            Called with the result in the JavaFX application thread - Only
+     *            if no newer request for the key was made in the meantime.
+     */
+    public void validateLater(@NotEmpty final String key,
+            @NotNull final SetupTask snapshot,
+            @NotNull final Consumer<ViolationIndex> callback) {
+        final State state = states.computeIfAbsent(key, (k) -> new State());
+        synchronized (state) {
+            state.generation++;
+            if (state.pending != null) {
+                state.pending.cancel(false);
+            }
+            final long generation = state.generation;
+            state.pending = executor.schedule(
+                    () -> validate(state, generation, snapshot, callback),
+                    DEFAULT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void validate(final State state, final long generation,
+            final SetupTask snapshot, final Consumer<ViolationIndex> callback) {
+        final ViolationIndex result;
+        try {
+            result = ViolationIndex.of(validator.validate(snapshot,
+                    Default.class, UserInput.class));
+
+        } catch (final RuntimeException ex) {
+            LOG.error("Failed to validate: " + snapshot.getTypeId(), ex);
+            return;
+        }
+        synchronized (state) {
+            if (generation != state.generation) {
+                // Outdated
+                return;
+            }
+            state.result = result;
+            state.resultGeneration = generation;
+            state.pending = null;
+        }
+        FxQueue.runLater(() -> callback.accept(result));
+    }
+
+    /**
+     * Returns the result of the latest validation if it reflects the latest
+     * snapshot.
+     * 
+     * @param key
+     *            Unique key of the task.
+     * 
+     * @return Violations or <code>null</code> if nothing was validated yet or
+     *         a newer snapshot is still pending.
+     */
+    public ViolationIndex getResult(@NotEmpty final String key) {
+        final State state = states.get(key);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            if (state.resultGeneration != state.generation) {
+                return null;
+            }
+            return state.result;
+        }
+    }
+
+    /**
+     * Forgets the state for a key, for example after the task was saved.
+     * 
+     * @param key
+     *            Unique key of the task.
+     */
+    public void invalidate(@NotEmpty final String key) {
+        final State state = states.remove(key);
+        if (state != null) {
+            synchronized (state) {
+                state.generation++;
+                if (state.pending != null) {
+                    state.pending.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Validation state of a single key. Guarded by its own monitor.
+     */
+    private static final class State {
+
+        private long generation;
+
+        private long resultGeneration = -1;
+
+        private ViolationIndex result;
+
+        private ScheduledFuture<?> pending;
+
+    }
+
+}
@@ -17,26 +17,57 @@
  */
 package org.fuin.devsupwiz.common;
 
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Produces;
 import javax.validation.Validation;
 import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
 
 import org.hibernate.validator.messageinterpolation.ResourceBundleMessageInterpolator;
 import org.hibernate.validator.resourceloading.PlatformResourceBundleLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * CDI factory that creates a {@link Validator} based on a
- * {@link PlatformResourceBundleLocator}.
+ * {@link PlatformResourceBundleLocator}. There is only one validator factory
+ * for the application that is closed when the container shuts down. The
+ * constraint metadata of all setup tasks found in the classpath is created in
+ * the background when the container starts.
  */
+@ApplicationScoped
 public class ValidatorProducer {
 
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ValidatorProducer.class);
+
+    private ValidatorFactory factory;
+
+    private Validator validator;
+
+    /**
+     * Creates the validator factory.
+     */
+    @PostConstruct
+    public void init() {
+        factory = createFactory();
+        validator = factory.getValidator();
+    }
+
     /**
-     * Creates a new validator instance.
+     * Creates a new validator factory that uses a
+     * {@link PlatformResourceBundleLocator}. The caller is responsible for
+     * closing it.
      * 
-     * @return New instance.
+     * @return New factory.
      */
-    @Produces
-    public Validator createValidator() {
+    public static ValidatorFactory createFactory() {
 
         final PlatformResourceBundleLocator resourceBundleLocator = new PlatformResourceBundleLocator(
                 ResourceBundleMessageInterpolator.USER_VALIDATION_MESSAGES,
@@ -45,8 +76,62 @@ public class ValidatorProducer {
         return Validation.byDefaultProvider().configure()
                 .messageInterpolator(new ResourceBundleMessageInterpolator(
                         resourceBundleLocator))
-                .buildValidatorFactory().getValidator();
-        
+                .buildValidatorFactory();
+
+    }
+
+    /**
+     * Closes the validator factory.
+     */
+    @PreDestroy
+    public void close() {
+        factory.close();
+    }
+
+    /**
+     * Returns the validator. The instance is thread safe and shared by all
+     * injection points.
+     * 
+     * @return Validator.
+     */
+    @Produces
+    @ApplicationScoped
+    public Validator createValidator() {
+        return validator;
+    }
+
+    /**
+     * Starts creating the constraint metadata of all setup tasks in the
+     * background when the application context is initialized.
+     * 
+     * @param event
+     *            Event fired by the container.
+     */
+    public void warmUp(
+            @Observes @Initialized(ApplicationScoped.class) final Object event) {
+        final Thread thread = new Thread(this::warmUp,
+                "devsupwiz-validator-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private void warmUp() {
+        final long start = System.currentTimeMillis();
+        final List<String> classNames = DevSupWizUtils
+                .findSetupTasksInClasspath();
+        for (final String className : classNames) {
+            try {
+                validator.getConstraintsForClass(Class.forName(className));
+            } catch (final ClassNotFoundException | LinkageError
+                    | RuntimeException ex) {
+                LOG.debug("Failed to create constraint metadata for: {}",
+                        className, ex);
+            }
+        }
+        LOG.debug("Created constraint metadata for {} task classes in {} ms",
+                classNames.size(), System.currentTimeMillis() - start);
+
     }
 
 }
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Path;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Immutable set of constraint violations indexed by the name of the top level
+ * property. Violations of the bean itself are indexed with an empty name.
+ */
+public final class ViolationIndex {
+
+    /** Index without any violations. */
+    public static final ViolationIndex EMPTY = new ViolationIndex(
+            Collections.emptyMap(), Collections.emptyList());
+
+    private final Map<String, List<String>> messagesByProperty;
+
+    private final List<String> messages;
+
+    private ViolationIndex(final Map<String, List<String>> messagesByProperty,
+            final List<String> messages) {
+        super();
+        this.messagesByProperty = messagesByProperty;
+        this.messages = messages;
+    }
+
+    /**
+     * Creates an index for a set of violations.
+     * 
+     * @param violations
+     *            Violations to index.
+     * 
+     * @return New index.
+     * 
+     * @param <T>
+     *            Type of the validated bean.
+     */
+    public static <T> ViolationIndex of(
+            @NotNull final Set<ConstraintViolation<T>> violations) {
+        if (violations.isEmpty()) {
+            return EMPTY;
+        }
+        final Map<String, List<String>> messagesByProperty = new HashMap<>();
+        final List<String> messages = new ArrayList<>(violations.size());
+        for (final ConstraintViolation<T> violation : violations) {
+            final String property = property(violation);
+            List<String> list = messagesByProperty.get(property);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                messagesByProperty.put(property, list);
+            }
+            list.add(violation.getMessage());
+            messages.add(violation.getMessage());
+        }
+        return new ViolationIndex(messagesByProperty,
+                Collections.unmodifiableList(messages));
+
+    }
+
+    private static String property(final ConstraintViolation<?> violation) {
+        final Iterator<Path.Node> it = violation.getPropertyPath().iterator();
+        if (!it.hasNext()) {
+            return "";
+        }
+        final String name = it.next().getName();
+        return name == null ? "" : name;
+    }
+
+    /**
+     * Determines if there are no violations.
+     * 
+     * @return <code>true</code> if the bean is valid.
+     */
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * Verifies if a property with the given name has an error.
+     * 
+     * @param property
+     *            Name of the top level property.
+     * 
+     * @return <code>true</code> if there is an error for the property.
+     */
+    public boolean isViolated(@NotNull final String property) {
+        return messagesByProperty.containsKey(property);
+    }
+
+    /**
+     * Returns the messages for a property.
+     * 
+     * @param property
+     *            Name of the top level property.
+     * 
+     * @return Unmodifiable list of messages or an empty list if the property
+     *         is valid.
+     */
+    public List<String> getMessages(@NotNull final String property) {
+        final List<String> list = messagesByProperty.get(property);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns all messages.
+     * 
+     * @return Unmodifiable list of messages.
+     */
+    public List<String> getMessages() {
+        return messages;
+    }
+
+}